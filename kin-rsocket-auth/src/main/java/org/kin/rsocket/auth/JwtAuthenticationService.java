@@ -4,11 +4,17 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -33,14 +39,20 @@ public final class JwtAuthenticationService implements AuthenticationService {
     private static final String PUBLIC_KEY_FILE = "jwt_rsa.pub";
     /** 私钥文件名 */
     private static final String PRIVATE_KEY_FILE = "jwt_rsa.key";
+    /** 已校验token缓存metrics name, 包含hit, miss, eviction等 */
+    private static final String JWT_VERIFY_CACHE_METRICS_NAME = "rsocket.auth.jwt.cache";
 
     /** jwt校验算法 */
     private final List<JWTVerifier> verifiers = new ArrayList<>();
-    /** cache verified principal */
-    private final Cache<Integer, RSocketAppPrincipal> jwtVerifyCache = CacheBuilder.newBuilder()
+    /**
+     * cache verified principal
+     * key -> token sha256 digest, 避免不同token hash冲突而误用他人principal
+     */
+    private final Cache<HashCode, VerifiedPrincipal> jwtVerifyCache = CacheBuilder.newBuilder()
             .maximumSize(100_00)
             //30min后移除
             .expireAfterWrite(30, TimeUnit.MINUTES)
+            .recordStats()
             .build();
     private final RSAPrivateKey privateKey;
 
@@ -73,6 +85,7 @@ public final class JwtAuthenticationService implements AuthenticationService {
         //使用暴露的公钥去校验签名
         this.verifiers.add(JWT.require(Algorithm.RSA256(readPublicKey(authDirFile), null)).withIssuer(issuer).build());
         this.privateKey = readPrivateKey(authDirFile);
+        GuavaCacheMetrics.monitor(Metrics.globalRegistry, jwtVerifyCache, JWT_VERIFY_CACHE_METRICS_NAME);
     }
 
     @Override
@@ -83,18 +96,30 @@ public final class JwtAuthenticationService implements AuthenticationService {
         //bearer jwt_token
         credentials = credentials.substring(credentials.lastIndexOf(" ") + 1);
 
-        int tokenHashCode = credentials.hashCode();
-        RSocketAppPrincipal principal = jwtVerifyCache.getIfPresent(tokenHashCode);
+        HashCode tokenDigest = Hashing.sha256().hashString(credentials, StandardCharsets.UTF_8);
+        VerifiedPrincipal verified = jwtVerifyCache.getIfPresent(tokenDigest);
+        if (Objects.nonNull(verified)) {
+            if (!verified.isExpired()) {
+                //已校验过, 无需再次rsa校验签名
+                return verified.principal;
+            }
+            //token已过期
+            jwtVerifyCache.invalidate(tokenDigest);
+            return null;
+        }
+
         for (JWTVerifier verifier : verifiers) {
             try {
-                principal = new JwtPrincipal(verifier.verify(credentials));
-                jwtVerifyCache.put(tokenHashCode, principal);
-                break;
+                DecodedJWT decodedJWT = verifier.verify(credentials);
+                RSocketAppPrincipal principal = new JwtPrincipal(decodedJWT);
+                Date expiresAt = decodedJWT.getExpiresAt();
+                jwtVerifyCache.put(tokenDigest, new VerifiedPrincipal(principal, Objects.nonNull(expiresAt) ? expiresAt.getTime() : Long.MAX_VALUE));
+                return principal;
             } catch (JWTVerificationException ignore) {
                 //do nothing
             }
         }
-        return principal;
+        return null;
     }
 
 
@@ -197,4 +222,28 @@ public final class JwtAuthenticationService implements AuthenticationService {
             out2.write(pub.getEncoded());
         }
     }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 已校验的token principal
+     */
+    private static final class VerifiedPrincipal {
+        /** token对应的principal */
+        private final RSocketAppPrincipal principal;
+        /** token过期时间, 即jwt exp, 不存在则为{@link Long#MAX_VALUE} */
+        private final long expiredAt;
+
+        VerifiedPrincipal(RSocketAppPrincipal principal, long expiredAt) {
+            this.principal = principal;
+            this.expiredAt = expiredAt;
+        }
+
+        /**
+         * @return token是否已过期
+         */
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiredAt;
+        }
+    }
 }
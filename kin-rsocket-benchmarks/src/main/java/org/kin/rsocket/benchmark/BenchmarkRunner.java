@@ -0,0 +1,28 @@
+package org.kin.rsocket.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * IDE内运行benchmark的入口, 结果以json格式输出到working directory, 方便不同版本之间对比
+ * <p>
+ * args[0]为需要运行的benchmark正则, 缺省运行全部
+ * 打包后也可以直接运行: java -jar kin-rsocket-benchmarks/target/benchmarks.jar [jmh参数]
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result("kin-rsocket-benchmarks.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,263 @@
+package org.kin.rsocket.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.loadbalance.WeightedStatsRequestInterceptor;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.ServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import org.kin.rsocket.broker.*;
+import org.kin.rsocket.broker.cluster.standalone.StandAloneBrokerManager;
+import org.kin.rsocket.core.RSocketMimeType;
+import org.kin.rsocket.core.ServiceLocator;
+import org.kin.rsocket.core.metadata.*;
+import org.kin.rsocket.core.transport.LocalTransportParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * benchmark使用的进程内broker
+ * <p>
+ * 基于local transport启动broker, 除了不依赖spring外, {@link RSocketServiceRegistry}及其依赖的构建方式与{@link RSocketBrokerAutoConfiguration}一致,
+ * 并提供app(responder/requester)接入broker的工具方法
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+final class BrokerFixture implements AutoCloseable {
+    /** benchmark服务group */
+    static final String GROUP = "benchmark";
+    /** benchmark服务名 */
+    static final String SERVICE = "org.kin.rsocket.benchmark.EchoService";
+    /** benchmark服务version */
+    static final String VERSION = "1.0.0";
+    /** benchmark服务handler */
+    static final String HANDLER = "echo";
+    /** benchmark服务 */
+    static final ServiceLocator SERVICE_LOCATOR = ServiceLocator.of(GROUP, SERVICE, VERSION);
+    /** 等待app注册或注销完成的超时时间 */
+    private static final Duration AWAIT_TIMEOUT = Duration.ofMinutes(1);
+
+    /** local transport uri */
+    private final URI uri;
+    /** broker路由 */
+    private final ProviderRouter router;
+    /** broker服务注册中心 */
+    private final RSocketServiceRegistry serviceRegistry;
+    /** broker server */
+    private final Closeable server;
+    /** 已接入broker的app */
+    private final Set<RSocket> apps = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param name                local transport name, 同一进程内唯一
+     * @param router              broker路由实现
+     * @param registerBatchWindow 参考{@link RSocketBrokerProperties#getRegisterBatchWindow()}
+     */
+    BrokerFixture(String name, ProviderRouter router, int registerBatchWindow) {
+        this.uri = URI.create("local:" + name);
+        this.router = router;
+
+        RSocketBrokerProperties brokerConfig = new RSocketBrokerProperties();
+        brokerConfig.setAuth(false);
+        StandAloneBrokerManager brokerManager = new StandAloneBrokerManager(brokerConfig);
+        brokerManager.init();
+
+        //benchmark不消费通知, 直接丢弃
+        this.serviceRegistry = new RSocketServiceRegistry(Sinks.many().multicast().directBestEffort(), null, brokerManager,
+                new RSocketServiceMeshInspector(false), false, null, router,
+                Sinks.many().multicast().directBestEffort(), registerBatchWindow, brokerConfig.getRegisterBatchSize(),
+                brokerConfig.getSetupParallelism(), brokerConfig.getMaxConcurrentSetups());
+
+        ServerTransport<?> serverTransport = new LocalTransportParser().buildServer(uri)
+                .orElseThrow(() -> new IllegalStateException("unsupported uri ".concat(uri.toString())));
+        RSocketServer rsocketServer = RSocketServer.create(serviceRegistry.acceptor());
+        if (router instanceof WeightedStatsRouter) {
+            //与RSocketBrokerAutoConfiguration#weightedStatsInterceptorCustomizer一致
+            WeightedStatsRouter weightedStatsRouter = (WeightedStatsRouter) router;
+            rsocketServer.interceptors(registry -> registry.forRequestsInRequester(rsocket -> {
+                WeightedStatsRequestInterceptor interceptor = new WeightedStatsRequestInterceptor() {
+                    @Override
+                    public void dispose() {
+                        weightedStatsRouter.remove(rsocket);
+                    }
+                };
+                weightedStatsRouter.put(rsocket, interceptor);
+                return interceptor;
+            }));
+        }
+        this.server = rsocketServer.bind(serverTransport).block();
+    }
+
+    /**
+     * 构建app setup payload metadata
+     *
+     * @param published app发布的服务
+     */
+    private static ByteBuf setupMetadata(String appName, Collection<ServiceLocator> published) {
+        AppMetadata appMetadata = AppMetadata.builder()
+                .uuid(UUID.randomUUID().toString())
+                .name(appName)
+                .ip("127.0.0.1")
+                .build();
+        RSocketCompositeMetadata compositeMetadata;
+        if (published.isEmpty()) {
+            compositeMetadata = RSocketCompositeMetadata.from(appMetadata);
+        } else {
+            RSocketServiceRegistryMetadata serviceRegistryMetadata = RSocketServiceRegistryMetadata.builder()
+                    .addPublishedServices(published)
+                    .build();
+            compositeMetadata = RSocketCompositeMetadata.from(appMetadata, serviceRegistryMetadata);
+        }
+        return compositeMetadata.getContent();
+    }
+
+    /**
+     * 构建请求{@link #SERVICE}的composite metadata, 与RequesterProxy一致, binary routing时{@link BinaryRoutingMetadata}作为首个entry
+     *
+     * @param binaryRouting 是否使用binary routing
+     */
+    static ByteBuf requestMetadata(boolean binaryRouting) {
+        GSVRoutingMetadata routingMetadata = GSVRoutingMetadata.from(GROUP, SERVICE, HANDLER, VERSION);
+        MessageMimeTypeMetadata messageMimeTypeMetadata = MessageMimeTypeMetadata.from(RSocketMimeType.JSON);
+        CompositeByteBuf compositeByteBuf = (CompositeByteBuf) RSocketCompositeMetadata.from(routingMetadata, messageMimeTypeMetadata).getContent();
+        if (binaryRouting) {
+            compositeByteBuf.addComponent(true, 0, BinaryRoutingMetadata.from(routingMetadata).getHeaderAndContent());
+        }
+        ByteBuf metadata = Unpooled.copiedBuffer(compositeByteBuf);
+        ReferenceCountUtil.safeRelease(compositeByteBuf);
+        return metadata;
+    }
+
+    /**
+     * 接入broker
+     *
+     * @param responder broker请求app时的处理逻辑
+     */
+    private Mono<RSocket> connect(String appName, Collection<ServiceLocator> published, RSocket responder) {
+        ClientTransport clientTransport = new LocalTransportParser().buildClient(uri)
+                .orElseThrow(() -> new IllegalStateException("unsupported uri ".concat(uri.toString())));
+        return RSocketConnector.create()
+                .dataMimeType(RSocketMimeType.JSON.getType())
+                .metadataMimeType(RSocketMimeType.COMPOSITE_METADATA.getType())
+                .setupPayload(ByteBufPayload.create(Unpooled.EMPTY_BUFFER, setupMetadata(appName, published)))
+                .acceptor((setup, sendingSocket) -> Mono.just(responder))
+                .connect(clientTransport);
+    }
+
+    /**
+     * 接入仅消费服务的requester, 等待broker完成注册后返回
+     */
+    RSocket connectRequester(String appName) {
+        int expectedApps = countApps() + 1;
+        RSocket app = connect(appName, Collections.emptyList(), EchoResponder.INSTANCE).block(AWAIT_TIMEOUT);
+        apps.add(app);
+        await(this::countApps, expectedApps, "apps");
+        return app;
+    }
+
+    /**
+     * 模拟app重连风暴, 并发接入{@code count}个发布{@link #SERVICE}的responder, 原样返回请求data, 等待broker完成注册后返回
+     */
+    List<RSocket> connectResponders(int count) {
+        int expectedApps = countApps() + count;
+        int expectedInstances = countInstances() + count;
+        List<RSocket> responders = Flux.range(0, count)
+                .flatMap(i -> connect("benchmark-responder-" + i, Collections.singleton(SERVICE_LOCATOR), EchoResponder.INSTANCE), count)
+                .collectList()
+                .block(AWAIT_TIMEOUT);
+        apps.addAll(responders);
+        await(this::countApps, expectedApps, "apps");
+        await(this::countInstances, expectedInstances, "instances");
+        return responders;
+    }
+
+    /**
+     * 断开responder连接, 并等待broker完成注销
+     */
+    void disconnect(List<RSocket> responders) {
+        int expectedApps = countApps() - responders.size();
+        int expectedInstances = countInstances() - responders.size();
+        for (RSocket responder : responders) {
+            responder.dispose();
+            apps.remove(responder);
+        }
+        await(this::countApps, expectedApps, "apps");
+        await(this::countInstances, expectedInstances, "instances");
+    }
+
+    /**
+     * 等待broker注册或注销完成
+     *
+     * @param counter  计数逻辑
+     * @param expected 期望数量
+     * @param desc     计数描述, 用于超时提示
+     */
+    private static void await(IntSupplier counter, int expected, String desc) {
+        long deadline = System.nanoTime() + AWAIT_TIMEOUT.toNanos();
+        while (counter.getAsInt() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(String.format("wait for %d %s timeout, now %d", expected, desc, counter.getAsInt()));
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * @return broker上已接入的app数
+     */
+    private int countApps() {
+        return serviceRegistry.getAllRSocketServices().size();
+    }
+
+    /**
+     * @return broker上{@link #SERVICE}已注册的实例数
+     */
+    private int countInstances() {
+        return router.getAllInstanceIds(SERVICE_LOCATOR.getId()).size();
+    }
+
+    @Override
+    public void close() {
+        for (RSocket app : apps) {
+            app.dispose();
+        }
+        apps.clear();
+        server.dispose();
+        serviceRegistry.dispose();
+    }
+
+    //--------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 原样返回请求data的responder
+     */
+    private static final class EchoResponder implements RSocket {
+        static final EchoResponder INSTANCE = new EchoResponder();
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            payload.release();
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            //payload由rsocket发送后释放
+            return Mono.just(payload);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.kin.rsocket.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.ByteBufPayload;
+import org.kin.rsocket.broker.RandomRouter;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * requester -> broker -> responder端到端request response往返开销
+ * <p>
+ * 基于local transport, 排除网络影响, 仅统计broker转发(metadata解析, 路由, metrics)以及rsocket协议本身的开销
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BrokerRoundTripBenchmark {
+    /** 是否使用binary routing, 否则broker需完整解析composite metadata */
+    @Param({"true", "false"})
+    private boolean binaryRouting;
+    /** 请求data大小, byte */
+    @Param({"64", "4096"})
+    private int dataSize;
+
+    private BrokerFixture brokerFixture;
+    private RSocket requester;
+    private ByteBuf metadata;
+    private ByteBuf data;
+
+    @Setup
+    public void setup() {
+        brokerFixture = new BrokerFixture("round-trip-benchmark-" + binaryRouting + "-" + dataSize, new RandomRouter(), 0);
+        brokerFixture.connectResponders(2);
+        requester = brokerFixture.connectRequester("round-trip-benchmark-requester");
+
+        metadata = BrokerFixture.requestMetadata(binaryRouting);
+        byte[] bytes = new byte[dataSize];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        data = Unpooled.wrappedBuffer(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        brokerFixture.close();
+        ReferenceCountUtil.safeRelease(metadata);
+        ReferenceCountUtil.safeRelease(data);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int requestResponse() {
+        return requestResponse(requester, metadata, data);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int requestResponseConcurrently() {
+        return requestResponse(requester, metadata, data);
+    }
+
+    /**
+     * 同步发起一次request response
+     *
+     * @return 响应data大小
+     */
+    private static int requestResponse(RSocket requester, ByteBuf metadata, ByteBuf data) {
+        //retained, payload发送后释放
+        Payload response = requester.requestResponse(ByteBufPayload.create(data.retainedDuplicate(), metadata.retainedDuplicate())).block();
+        if (response == null) {
+            return 0;
+        }
+        try {
+            return response.data().readableBytes();
+        } finally {
+            response.release();
+        }
+    }
+
+    /**
+     * 同步经broker发起{@code count}次request response, 用于预热broker和积累路由统计
+     */
+    static void requestResponse(RSocket requester, int count) {
+        ByteBuf metadata = BrokerFixture.requestMetadata(true);
+        ByteBuf data = Unpooled.copiedBuffer("warmup", StandardCharsets.UTF_8);
+        try {
+            Flux.range(0, count)
+                    .concatMap(i -> requester.requestResponse(ByteBufPayload.create(data.retainedDuplicate(), metadata.retainedDuplicate())))
+                    .doOnNext(Payload::release)
+                    .blockLast();
+        } finally {
+            ReferenceCountUtil.safeRelease(metadata);
+            ReferenceCountUtil.safeRelease(data);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.kin.rsocket.benchmark;
+
+import org.kin.framework.utils.MurmurHash3;
+import org.kin.rsocket.core.LocalRSocketServiceRegistry;
+import org.kin.rsocket.core.ReactiveMethodInvoker;
+import org.kin.rsocket.core.utils.Separators;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LocalRSocketServiceRegistry}查找服务方法以及调用开销, 即responder端每次处理请求都要经历的步骤
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalServiceInvokerBenchmark {
+    private int handlerId;
+    private ReactiveMethodInvoker invoker;
+
+    @Setup
+    public void setup() {
+        LocalRSocketServiceRegistry.INSTANCE.addProvider(BrokerFixture.GROUP, BrokerFixture.VERSION, EchoService.class, new EchoServiceImpl());
+        handlerId = MurmurHash3.hash32(EchoService.class.getName() + Separators.SERVICE_HANDLER + BrokerFixture.HANDLER);
+        invoker = LocalRSocketServiceRegistry.INSTANCE.getInvoker(EchoService.class.getName(), BrokerFixture.HANDLER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        LocalRSocketServiceRegistry.INSTANCE.removeProvider(BrokerFixture.GROUP, EchoService.class.getName(), BrokerFixture.VERSION, EchoService.class);
+    }
+
+    @Benchmark
+    public ReactiveMethodInvoker getInvokerByHandlerId() {
+        return LocalRSocketServiceRegistry.INSTANCE.getInvoker(handlerId);
+    }
+
+    @Benchmark
+    public ReactiveMethodInvoker getInvokerByServiceHandler() {
+        return LocalRSocketServiceRegistry.INSTANCE.getInvoker(EchoService.class.getName(), BrokerFixture.HANDLER);
+    }
+
+    @Benchmark
+    public Object invoke() throws Exception {
+        return invoker.invoke("kin-rsocket-benchmark");
+    }
+
+    @Benchmark
+    public Class<?> inferredClassForParameter() {
+        return invoker.getInferredClassForParameter(0);
+    }
+
+    //--------------------------------------------------------------------------------------------------------------
+    public interface EchoService {
+        /**
+         * 原样返回
+         */
+        Mono<String> echo(String content);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+        @Override
+        public Mono<String> echo(String content) {
+            return Mono.just(content);
+        }
+    }
+}
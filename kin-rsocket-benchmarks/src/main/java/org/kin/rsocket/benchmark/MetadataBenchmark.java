@@ -0,0 +1,79 @@
+package org.kin.rsocket.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.rsocket.core.RSocketMimeType;
+import org.kin.rsocket.core.metadata.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * broker转发时metadata解析开销
+ * <p>
+ * 对比{@link BinaryRoutingMetadata#extract(ByteBuf)}, {@link BinaryRoutingMetadataFlyweight}快速路由
+ * 以及回退到{@link RSocketCompositeMetadata}完整解析的开销
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MetadataBenchmark {
+    /** 首个entry为binary routing的composite metadata bytes, 与RequesterProxy发送的一致 */
+    private ByteBuf binaryRoutingMetadataBytes;
+    /** 不带binary routing的composite metadata bytes */
+    private ByteBuf gsvRoutingMetadataBytes;
+    private GSVRoutingMetadata routingMetadata;
+    private MessageMimeTypeMetadata messageMimeTypeMetadata;
+
+    @Setup
+    public void setup() {
+        binaryRoutingMetadataBytes = BrokerFixture.requestMetadata(true);
+        gsvRoutingMetadataBytes = BrokerFixture.requestMetadata(false);
+        routingMetadata = GSVRoutingMetadata.from(BrokerFixture.GROUP, BrokerFixture.SERVICE, BrokerFixture.HANDLER, BrokerFixture.VERSION);
+        messageMimeTypeMetadata = MessageMimeTypeMetadata.from(RSocketMimeType.JSON);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReferenceCountUtil.safeRelease(binaryRoutingMetadataBytes);
+        ReferenceCountUtil.safeRelease(gsvRoutingMetadataBytes);
+    }
+
+    @Benchmark
+    public BinaryRoutingMetadata binaryRoutingExtract() {
+        return BinaryRoutingMetadata.extract(binaryRoutingMetadataBytes);
+    }
+
+    @Benchmark
+    public void binaryRoutingFlyweight(Blackhole blackhole) {
+        BinaryRoutingMetadataFlyweight flyweight = BinaryRoutingMetadataFlyweight.current();
+        if (flyweight.wrap(binaryRoutingMetadataBytes)) {
+            blackhole.consume(flyweight.getServiceId());
+            blackhole.consume(flyweight.getHandlerId());
+            blackhole.consume(flyweight.isSticky());
+            blackhole.consume(flyweight.containsMessageMimeType());
+        }
+        flyweight.clear();
+    }
+
+    @Benchmark
+    public void compositeMetadataParse(Blackhole blackhole) {
+        RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(gsvRoutingMetadataBytes);
+        blackhole.consume(compositeMetadata.getMetadata(RSocketMimeType.ROUTING));
+        blackhole.consume(compositeMetadata.contains(RSocketMimeType.MESSAGE_MIME_TYPE));
+    }
+
+    @Benchmark
+    public void compositeMetadataEncode(Blackhole blackhole) {
+        ByteBuf content = RSocketCompositeMetadata.from(routingMetadata, messageMimeTypeMetadata).getContent();
+        blackhole.consume(content.readableBytes());
+        ReferenceCountUtil.safeRelease(content);
+    }
+}
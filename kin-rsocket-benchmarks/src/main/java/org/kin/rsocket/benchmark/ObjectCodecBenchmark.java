@@ -0,0 +1,163 @@
+package org.kin.rsocket.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.rsocket.core.RSocketMimeType;
+import org.kin.rsocket.core.codec.ObjectCodec;
+import org.kin.rsocket.core.codec.ObjectCodecs;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各{@link ObjectCodec}实现服务接口参数以及返回值编解码开销
+ * <p>
+ * binary和text codec仅支持bytes和string, 故这两种mime type使用等长的bytes和json string作为数据
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjectCodecBenchmark {
+    /** 与kin.factories注册的codec一一对应 */
+    @Param({"JSON", "CBOR", "HESSIAN", "JAVA_OBJECT", "PROTOBUF", "AVRO", "TEXT", "BINARY"})
+    private String mimeType;
+
+    private RSocketMimeType rsocketMimeType;
+    /** 编码数据 */
+    private Object value;
+    /** 编码数据类型 */
+    private Class<?> valueClass;
+    /** 已编码的参数 */
+    private ByteBuf encodedParams;
+    /** 已编码的返回值 */
+    private ByteBuf encodedResult;
+
+    @Setup
+    public void setup() {
+        rsocketMimeType = RSocketMimeType.valueOf(mimeType);
+        User user = User.of(1, "kin-rsocket-benchmark", System.currentTimeMillis(), Arrays.asList("broker", "codec", "jmh"));
+        switch (rsocketMimeType) {
+            case TEXT:
+                value = user.toString();
+                break;
+            case BINARY:
+                value = user.toString().getBytes();
+                break;
+            default:
+                value = user;
+        }
+        valueClass = value.getClass();
+
+        encodedParams = ObjectCodecs.INSTANCE.encodeParams(new Object[]{value}, rsocketMimeType);
+        encodedResult = ObjectCodecs.INSTANCE.encodeResult(value, rsocketMimeType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReferenceCountUtil.safeRelease(encodedParams);
+        ReferenceCountUtil.safeRelease(encodedResult);
+    }
+
+    @Benchmark
+    public int encodeParams() {
+        ByteBuf byteBuf = ObjectCodecs.INSTANCE.encodeParams(new Object[]{value}, rsocketMimeType);
+        int size = byteBuf.readableBytes();
+        ReferenceCountUtil.safeRelease(byteBuf);
+        return size;
+    }
+
+    @Benchmark
+    public Object decodeParams() {
+        //duplicate, 不修改原reader index
+        return ObjectCodecs.INSTANCE.decodeParams(rsocketMimeType, encodedParams.duplicate(), valueClass);
+    }
+
+    @Benchmark
+    public int encodeResult() {
+        ByteBuf byteBuf = ObjectCodecs.INSTANCE.encodeResult(value, rsocketMimeType);
+        int size = byteBuf.readableBytes();
+        ReferenceCountUtil.safeRelease(byteBuf);
+        return size;
+    }
+
+    @Benchmark
+    public Object decodeResult() {
+        //duplicate, 不修改原reader index
+        return ObjectCodecs.INSTANCE.decodeResult(rsocketMimeType, encodedResult.duplicate(), valueClass);
+    }
+
+    //--------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 编解码数据
+     */
+    public static class User implements Serializable {
+        private static final long serialVersionUID = 2839196012367452826L;
+
+        private int id;
+        private String name;
+        private long createTime;
+        private List<String> tags;
+
+        public static User of(int id, String name, long createTime, List<String> tags) {
+            User inst = new User();
+            inst.id = id;
+            inst.name = name;
+            inst.createTime = createTime;
+            inst.tags = tags;
+            return inst;
+        }
+
+        //setter && getter
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(long createTime) {
+            this.createTime = createTime;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "\"id\":" + id +
+                    ", \"name\":\"" + name + '"' +
+                    ", \"createTime\":" + createTime +
+                    ", \"tags\":" + tags +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.kin.rsocket.benchmark;
+
+import org.kin.rsocket.broker.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各{@link ProviderRouter}实现选择服务实例的开销
+ * <p>
+ * 服务实例通过local transport真实接入broker, 与线上注册流程一致.
+ * {@link WeightedStatsRouter}在预热阶段前先经broker转发一批请求, 以积累实例响应统计
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ProviderRouterBenchmark {
+    /** 与kin.rsocket.broker.router配置值一致 */
+    @Param({"random", "roundRobin", "weightedStats"})
+    private String router;
+    /** 服务实例数 */
+    @Param({"1", "2", "8", "64"})
+    private int instances;
+
+    private BrokerFixture brokerFixture;
+    private ProviderRouter providerRouter;
+    private int serviceId;
+
+    @Setup
+    public void setup() {
+        switch (router) {
+            case "roundRobin":
+                providerRouter = new RoundRobinRouter();
+                break;
+            case "weightedStats":
+                providerRouter = new WeightedStatsRouter();
+                break;
+            default:
+                providerRouter = new RandomRouter();
+        }
+        brokerFixture = new BrokerFixture("router-benchmark-" + router + "-" + instances, providerRouter, 0);
+        brokerFixture.connectResponders(instances);
+        serviceId = BrokerFixture.SERVICE_LOCATOR.getId();
+
+        if (providerRouter instanceof WeightedStatsRouter) {
+            //积累响应统计
+            BrokerRoundTripBenchmark.requestResponse(brokerFixture.connectRequester("router-benchmark-requester"), instances * 100);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        brokerFixture.close();
+    }
+
+    @Benchmark
+    public Integer route() {
+        return providerRouter.route(serviceId);
+    }
+}
@@ -0,0 +1,51 @@
+package org.kin.rsocket.benchmark;
+
+import io.rsocket.RSocket;
+import org.kin.rsocket.broker.RSocketServiceRegistry;
+import org.kin.rsocket.broker.RandomRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * broker重启或网络抖动后, 大量app同时重连时{@link RSocketServiceRegistry}注册与注销的耗时
+ * <p>
+ * 每次invocation都会并发接入{@code instances}个app, 并等待broker完成注册, 再断开全部连接并等待broker完成注销.
+ * {@code registerBatchWindow}大于0时, 开启批量注册
+ *
+ * @author huangjianqin
+ * @date 2022/3/8
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryReconnectBenchmark {
+    /** 同时重连的app数 */
+    @Param({"1000", "5000", "10000"})
+    private int instances;
+    /** 参考kin.rsocket.broker.register-batch-window, ms */
+    @Param({"0", "10"})
+    private int registerBatchWindow;
+
+    private BrokerFixture brokerFixture;
+
+    @Setup
+    public void setup() {
+        brokerFixture = new BrokerFixture("reconnect-benchmark-" + instances + "-" + registerBatchWindow, new RandomRouter(), registerBatchWindow);
+    }
+
+    @TearDown
+    public void tearDown() {
+        brokerFixture.close();
+    }
+
+    @Benchmark
+    public void reconnect() {
+        List<RSocket> responders = brokerFixture.connectResponders(instances);
+        brokerFixture.disconnect(responders);
+    }
+}
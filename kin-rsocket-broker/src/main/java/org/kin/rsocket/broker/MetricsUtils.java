@@ -20,17 +20,7 @@ public final class MetricsUtils {
 
     private static void metrics(String group, String version, String service, String handler, String frameType) {
         if (StringUtils.isNotBlank(service)) {
-            List<Tag> tags = new ArrayList<>();
-            if (StringUtils.isNotBlank(group)) {
-                tags.add(Tag.of("group", group));
-            }
-            if (StringUtils.isNotBlank(version)) {
-                tags.add(Tag.of("version", version));
-            }
-            if (StringUtils.isNotBlank(handler)) {
-                tags.add(Tag.of("method", handler));
-            }
-            tags.add(Tag.of("frame", frameType));
+            List<Tag> tags = tags(group, version, handler, frameType);
             //具体某一服务请求的数量
             Metrics.counter(service.concat(MetricsNames.COUNT_SUFFIX), tags).increment();
             //某一服务(不区分group和version)所有请求的数量
@@ -41,6 +31,31 @@ public final class MetricsUtils {
         Metrics.counter(MetricsNames.RSOCKET_REQUEST_COUNT).increment();
     }
 
+    /**
+     * 服务请求metrics tags
+     */
+    static List<Tag> tags(String group, String version, String handler, String frameType) {
+        List<Tag> tags = new ArrayList<>(4);
+        if (StringUtils.isNotBlank(group)) {
+            tags.add(Tag.of("group", group));
+        }
+        if (StringUtils.isNotBlank(version)) {
+            tags.add(Tag.of("version", version));
+        }
+        if (StringUtils.isNotBlank(handler)) {
+            tags.add(Tag.of("method", handler));
+        }
+        tags.add(Tag.of("frame", frameType));
+        return tags;
+    }
+
+    /**
+     * 无法获取服务信息时, 仅统计broker接受upstream服务请求数量
+     */
+    public static void metrics(String frameType) {
+        metrics(null, null, null, null, frameType);
+    }
+
     public static void metrics(GSVRoutingMetadata routingMetadata, String frameType) {
         metrics(routingMetadata.getGroup(), routingMetadata.getVersion(), routingMetadata.getService(), routingMetadata.getHandler(), frameType);
     }
@@ -0,0 +1,579 @@
+package org.kin.rsocket.broker;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变持久化hash map, 基于HAMT(Hash Array Mapped Trie)实现
+ * <p>
+ * 每次put或remove仅复制根节点到目标节点路径上的节点(最多7层, 每层最多32个slot), 其余节点与旧map共享,
+ * 因此更新开销与map大小基本无关, 适合copy on write场景
+ * <p>
+ * 实例不可变, 线程安全, 不支持null key和null value
+ *
+ * @author huangjianqin
+ * @date 2022/3/7
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class PersistentHashMap<K, V> {
+    /** 空map */
+    private static final PersistentHashMap EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+    /** 每层占用hash bit数 */
+    private static final int BITS = 5;
+    /** 每层hash mask */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** 根节点 */
+    private final BitmapNode root;
+    /** entry数量 */
+    private final int size;
+
+    private PersistentHashMap(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return 空map
+     */
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 扰动hash, 与{@link HashMap}一致
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return 指定层hash对应的slot
+     */
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    /**
+     * @return 指定层hash对应的bitmap位
+     */
+    private static int bitpos(int hash, int shift) {
+        return 1 << mask(hash, shift);
+    }
+
+    @Nullable
+    V get(Object key) {
+        Leaf leaf = root.find(hash(key), 0, key);
+        return Objects.nonNull(leaf) ? (V) leaf.value : null;
+    }
+
+    V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return Objects.nonNull(value) ? value : defaultValue;
+    }
+
+    boolean containsKey(Object key) {
+        return Objects.nonNull(root.find(hash(key), 0, key));
+    }
+
+    /**
+     * @return 包含该entry的新map, 如果key value均未变化, 则返回自身
+     */
+    PersistentHashMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        SizeChange change = new SizeChange();
+        BitmapNode newRoot = (BitmapNode) root.put(hash(key), 0, key, value, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, size + change.delta);
+    }
+
+    /**
+     * @return 移除该key的新map, 如果key不存在, 则返回自身
+     */
+    PersistentHashMap<K, V> remove(Object key) {
+        Node newRoot = root.remove(hash(key), 0, key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (Objects.isNull(newRoot)) {
+            return empty();
+        }
+        return new PersistentHashMap<>((BitmapNode) newRoot, size - 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 遍历所有entry
+     */
+    void forEach(BiConsumer<? super K, ? super V> consumer) {
+        root.forEach((BiConsumer<Object, Object>) consumer);
+    }
+
+    /**
+     * @return 只读key set视图
+     */
+    Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                LeafIterator iterator = new LeafIterator(root);
+                return new Iterator<K>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public K next() {
+                        return (K) iterator.next().key;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return Objects.nonNull(o) && containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return 只读value集合视图
+     */
+    Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                LeafIterator iterator = new LeafIterator(root);
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return (V) iterator.next().value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    //--------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * put操作时记录entry数量变化
+     */
+    private static final class SizeChange {
+        private int delta;
+    }
+
+    /**
+     * entry
+     */
+    private static final class Leaf {
+        private final int hash;
+        private final Object key;
+        private final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int hash, Object key) {
+            return this.hash == hash && this.key.equals(key);
+        }
+    }
+
+    /**
+     * trie节点
+     */
+    private static abstract class Node {
+        /**
+         * 查找entry
+         */
+        @Nullable
+        abstract Leaf find(int hash, int shift, Object key);
+
+        /**
+         * @return 插入或更新entry后的新节点, 无变化则返回自身
+         */
+        abstract Node put(int hash, int shift, Object key, Object value, SizeChange change);
+
+        /**
+         * @return 移除entry后的新节点, 节点为空则返回null, 无变化则返回自身
+         */
+        @Nullable
+        abstract Node remove(int hash, int shift, Object key);
+
+        /**
+         * @return 节点仅包含一个entry时, 返回该entry, 用于移除后压缩路径
+         */
+        @Nullable
+        abstract Leaf singleLeaf();
+
+        /**
+         * 遍历entry
+         */
+        abstract void forEach(BiConsumer<Object, Object> consumer);
+
+        /**
+         * @return 子节点或entry数量
+         */
+        abstract int slotCount();
+
+        /**
+         * @return 子节点或entry
+         */
+        abstract Object slot(int index);
+    }
+
+    /**
+     * bitmap索引节点, slot为{@link Leaf}或子{@link Node}
+     */
+    private static final class BitmapNode extends Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        /**
+         * @return bitmap位对应的slot下标
+         */
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Leaf find(int hash, int shift, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.matches(hash, key) ? leaf : null;
+            }
+            return ((Node) slot).find(hash, shift + BITS, key);
+        }
+
+        @Override
+        Node put(int hash, int shift, Object key, Object value, SizeChange change) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0) {
+                //新slot
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, idx);
+                newSlots[idx] = new Leaf(hash, key, value);
+                System.arraycopy(slots, idx, newSlots, idx + 1, slots.length - idx);
+                change.delta = 1;
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[idx];
+            Object newSlot;
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                if (leaf.matches(hash, key)) {
+                    if (leaf.value == value) {
+                        return this;
+                    }
+                    newSlot = new Leaf(hash, key, value);
+                } else {
+                    newSlot = merge(leaf, new Leaf(hash, key, value), shift + BITS);
+                    change.delta = 1;
+                }
+            } else {
+                Node node = (Node) slot;
+                newSlot = node.put(hash, shift + BITS, key, value, change);
+                if (newSlot == node) {
+                    return this;
+                }
+            }
+            return new BitmapNode(bitmap, replace(idx, newSlot));
+        }
+
+        @Override
+        Node remove(int hash, int shift, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int idx = index(bit);
+            Object slot = slots[idx];
+            if (slot instanceof Leaf) {
+                if (!((Leaf) slot).matches(hash, key)) {
+                    return this;
+                }
+                return without(bit, idx);
+            }
+
+            Node node = (Node) slot;
+            Node newNode = node.remove(hash, shift + BITS, key);
+            if (newNode == node) {
+                return this;
+            }
+            if (Objects.isNull(newNode)) {
+                return without(bit, idx);
+            }
+            //子节点仅剩一个entry, 则直接上移
+            Leaf single = newNode.singleLeaf();
+            return new BitmapNode(bitmap, replace(idx, Objects.nonNull(single) ? single : newNode));
+        }
+
+        /**
+         * @return 移除指定slot后的节点
+         */
+        @Nullable
+        private Node without(int bit, int idx) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, idx);
+            System.arraycopy(slots, idx + 1, newSlots, idx, slots.length - idx - 1);
+            return new BitmapNode(bitmap ^ bit, newSlots);
+        }
+
+        /**
+         * @return 替换指定slot后的slot数组
+         */
+        private Object[] replace(int idx, Object newSlot) {
+            Object[] newSlots = slots.clone();
+            newSlots[idx] = newSlot;
+            return newSlots;
+        }
+
+        @Override
+        Leaf singleLeaf() {
+            if (slots.length == 1 && slots[0] instanceof Leaf) {
+                return (Leaf) slots[0];
+            }
+            return null;
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (Object slot : slots) {
+                if (slot instanceof Leaf) {
+                    Leaf leaf = (Leaf) slot;
+                    consumer.accept(leaf.key, leaf.value);
+                } else {
+                    ((Node) slot).forEach(consumer);
+                }
+            }
+        }
+
+        @Override
+        int slotCount() {
+            return slots.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return slots[index];
+        }
+    }
+
+    /**
+     * 合并两个不同key的entry
+     */
+    private static Node merge(Leaf l1, Leaf l2, int shift) {
+        if (l1.hash == l2.hash) {
+            return new CollisionNode(l1.hash, new Leaf[]{l1, l2});
+        }
+
+        int m1 = mask(l1.hash, shift);
+        int m2 = mask(l2.hash, shift);
+        if (m1 == m2) {
+            return new BitmapNode(1 << m1, new Object[]{merge(l1, l2, shift + BITS)});
+        }
+        return new BitmapNode((1 << m1) | (1 << m2), m1 < m2 ? new Object[]{l1, l2} : new Object[]{l2, l1});
+    }
+
+    /**
+     * hash冲突节点, 所有entry hash相同
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Leaf find(int hash, int shift, Object key) {
+            if (this.hash != hash) {
+                return null;
+            }
+            int idx = indexOf(key);
+            return idx >= 0 ? leaves[idx] : null;
+        }
+
+        @Override
+        Node put(int hash, int shift, Object key, Object value, SizeChange change) {
+            if (this.hash != hash) {
+                //hash不同, 则该层使用bitmap节点承载
+                return new BitmapNode(bitpos(this.hash, shift), new Object[]{this}).put(hash, shift, key, value, change);
+            }
+
+            int idx = indexOf(key);
+            if (idx >= 0) {
+                if (leaves[idx].value == value) {
+                    return this;
+                }
+                Leaf[] newLeaves = leaves.clone();
+                newLeaves[idx] = new Leaf(hash, key, value);
+                return new CollisionNode(hash, newLeaves);
+            }
+
+            Leaf[] newLeaves = Arrays.copyOf(leaves, leaves.length + 1);
+            newLeaves[leaves.length] = new Leaf(hash, key, value);
+            change.delta = 1;
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        @Override
+        Node remove(int hash, int shift, Object key) {
+            if (this.hash != hash) {
+                return this;
+            }
+            int idx = indexOf(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (leaves.length == 1) {
+                return null;
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, idx);
+            System.arraycopy(leaves, idx + 1, newLeaves, idx, leaves.length - idx - 1);
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        @Override
+        Leaf singleLeaf() {
+            return leaves.length == 1 ? leaves[0] : null;
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (Leaf leaf : leaves) {
+                consumer.accept(leaf.key, leaf.value);
+            }
+        }
+
+        @Override
+        int slotCount() {
+            return leaves.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return leaves[index];
+        }
+    }
+
+    /**
+     * 深度优先遍历entry
+     */
+    private static final class LeafIterator implements Iterator<Leaf> {
+        /** 最大深度, 32 bit hash每层5 bit, 再加上hash冲突节点 */
+        private static final int MAX_DEPTH = 8;
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] indexes = new int[MAX_DEPTH];
+        private int depth;
+        private Leaf next;
+
+        LeafIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        /**
+         * 寻找下一个entry
+         */
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                int index = indexes[depth];
+                if (index >= node.slotCount()) {
+                    nodes[depth] = null;
+                    depth--;
+                    continue;
+                }
+
+                indexes[depth] = index + 1;
+                Object slot = node.slot(index);
+                if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) slot;
+                indexes[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return Objects.nonNull(next);
+        }
+
+        @Override
+        public Leaf next() {
+            if (Objects.isNull(next)) {
+                throw new NoSuchElementException();
+            }
+            Leaf leaf = next;
+            advance();
+            return leaf;
+        }
+    }
+}
@@ -20,19 +20,29 @@ public interface ProviderRouter {
 
     /**
      * app注册完触发
-     * {@link RSocketServiceRegistry#lock}加锁下完成
+     * {@link RSocketServiceRegistry#writeLock}加锁下完成
      */
     void onAppRegistered(RSocketService rsocketService, int weight, Collection<ServiceLocator> services);
 
+    /**
+     * 批量app注册完触发, 权重和服务取自{@link RSocketService}
+     * 默认逐个触发{@link #onAppRegistered(RSocketService, int, Collection)}, 实现类可覆盖以减少copy on write次数
+     * {@link RSocketServiceRegistry#writeLock}加锁下完成
+     */
+    default void onAppsRegistered(Collection<RSocketService> rsocketServices) {
+        for (RSocketService rsocketService : rsocketServices) {
+            onAppRegistered(rsocketService, rsocketService.getAppMetadata().getWeight(), rsocketService.getPeerServices());
+        }
+    }
+
     /**
      * app注销完触发
-     * {@link RSocketServiceRegistry#lock}加锁下完成
+     * {@link RSocketServiceRegistry#writeLock}加锁下完成
      */
     void onServiceUnregistered(int instanceId, int weight, Collection<Integer> serviceIds);
 
     /**
      * 获取所有指定服务对应的所有app instance Id
-     * {@link RSocketServiceRegistry#lock}加锁下完成
      */
     Collection<Integer> getAllInstanceIds(int serviceId);
 }
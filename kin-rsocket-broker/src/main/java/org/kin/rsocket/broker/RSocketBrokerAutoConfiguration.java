@@ -127,7 +127,7 @@ public class RSocketBrokerAutoConfiguration {
         return new RSocketServiceMeshInspector(brokerConfig.isAuth());
     }
 
-    @Bean
+    @Bean(destroyMethod = "dispose")
     public RSocketServiceRegistry rsocketServiceRegistry(@Autowired RSocketBrokerProperties brokerConfig,
                                                          @Autowired RSocketFilterChain chain,
                                                          @Autowired @Qualifier("notificationSink") Sinks.Many<String> notificationSink,
@@ -146,7 +146,11 @@ public class RSocketBrokerAutoConfiguration {
                 brokerConfig.isAuth(),
                 upstreamBrokerCluster,
                 router,
-                p2pServiceNotificationSink);
+                p2pServiceNotificationSink,
+                brokerConfig.getRegisterBatchWindow(),
+                brokerConfig.getRegisterBatchSize(),
+                brokerConfig.getSetupParallelism(),
+                brokerConfig.getMaxConcurrentSetups());
     }
 
     //----------------------------------------------broker binder相关----------------------------------------------
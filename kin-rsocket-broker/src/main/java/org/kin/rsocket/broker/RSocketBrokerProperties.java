@@ -2,6 +2,7 @@ package org.kin.rsocket.broker;
 
 import org.apache.commons.io.FileUtils;
 import org.kin.framework.utils.StringUtils;
+import org.kin.framework.utils.SysUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
@@ -45,6 +46,17 @@ public class RSocketBrokerProperties {
      * @see org.kin.rsocket.core.upstream.loadbalance.UpstreamLoadBalance
      */
     private String upstreamLoadBalance;
+    /**
+     * 批量注册时间窗口(毫秒), 该窗口内接入的app会合并成一次注册, 减少broker重启后大量app重连时的注册开销
+     * 默认<=0, 即不开启批量注册
+     */
+    private int registerBatchWindow;
+    /** 批量注册单批最大app数量 */
+    private int registerBatchSize = 512;
+    /** 处理app setup(解析setup payload, 校验token以及注册等)的线程数 */
+    private int setupParallelism = SysUtils.CPU_NUM;
+    /** 最大同时处理的app setup数量, 超过则排队等待, <=0则不限制 */
+    private int maxConcurrentSetups = 1024;
 
     @PostConstruct
     public void loadUpstreamToken() throws IOException {
@@ -135,6 +147,38 @@ public class RSocketBrokerProperties {
         return this;
     }
 
+    public int getRegisterBatchWindow() {
+        return registerBatchWindow;
+    }
+
+    public void setRegisterBatchWindow(int registerBatchWindow) {
+        this.registerBatchWindow = registerBatchWindow;
+    }
+
+    public int getRegisterBatchSize() {
+        return registerBatchSize;
+    }
+
+    public void setRegisterBatchSize(int registerBatchSize) {
+        this.registerBatchSize = registerBatchSize;
+    }
+
+    public int getSetupParallelism() {
+        return setupParallelism;
+    }
+
+    public void setSetupParallelism(int setupParallelism) {
+        this.setupParallelism = setupParallelism;
+    }
+
+    public int getMaxConcurrentSetups() {
+        return maxConcurrentSetups;
+    }
+
+    public void setMaxConcurrentSetups(int maxConcurrentSetups) {
+        this.maxConcurrentSetups = maxConcurrentSetups;
+    }
+
     //-----------------------------------------------------------------------------------------------------------------
     public static class RSocketSSL {
         /** 是否开启tcp ssl */
@@ -13,7 +13,7 @@ import org.kin.rsocket.core.RSocketMimeType;
 import org.kin.rsocket.core.event.CloudEventBus;
 import org.kin.rsocket.core.event.UpstreamClusterChangedEvent;
 import org.kin.rsocket.core.metadata.AppMetadata;
-import org.kin.rsocket.core.metadata.BinaryRoutingMetadata;
+import org.kin.rsocket.core.metadata.BinaryRoutingMetadataFlyweight;
 import org.kin.rsocket.core.metadata.GSVRoutingMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 import org.kin.rsocket.core.utils.JSON;
@@ -61,10 +61,11 @@ final class RSocketBrokerRequestHandler extends AbstractRSocket {
     @Override
     public Mono<Payload> requestResponse(Payload payload) {
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
             GSVRoutingMetadata gsvRoutingMetadata;
-            if (binaryRoutingMetadata != null) {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
+            if (binaryRouting.wrap(payload.metadata())) {
+                gsvRoutingMetadata = binaryRouting.toGSVRoutingMetadata();
+                binaryRouting.clear();
             } else {
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
@@ -99,10 +100,11 @@ final class RSocketBrokerRequestHandler extends AbstractRSocket {
     @Override
     public Mono<Void> fireAndForget(Payload payload) {
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
             GSVRoutingMetadata gsvRoutingMetadata;
-            if (binaryRoutingMetadata != null) {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
+            if (binaryRouting.wrap(payload.metadata())) {
+                gsvRoutingMetadata = binaryRouting.toGSVRoutingMetadata();
+                binaryRouting.clear();
             } else {
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
@@ -137,10 +139,11 @@ final class RSocketBrokerRequestHandler extends AbstractRSocket {
     @Override
     public Flux<Payload> requestStream(Payload payload) {
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
             GSVRoutingMetadata gsvRoutingMetadata;
-            if (binaryRoutingMetadata != null) {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
+            if (binaryRouting.wrap(payload.metadata())) {
+                gsvRoutingMetadata = binaryRouting.toGSVRoutingMetadata();
+                binaryRouting.clear();
             } else {
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
@@ -179,10 +182,11 @@ final class RSocketBrokerRequestHandler extends AbstractRSocket {
 
     private Flux<Payload> requestChannel(Payload signal, Flux<Payload> payloads) {
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(signal.metadata());
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
             GSVRoutingMetadata gsvRoutingMetadata;
-            if (binaryRoutingMetadata != null) {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
+            if (binaryRouting.wrap(signal.metadata())) {
+                gsvRoutingMetadata = binaryRouting.toGSVRoutingMetadata();
+                binaryRouting.clear();
             } else {
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(signal.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
@@ -21,7 +21,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.ReflectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Field;
@@ -98,9 +97,8 @@ public final class RSocketService implements CloudEventRSocket {
         //remote ip
         this.remoteIp = getRemoteAddress(requester);
         this.requestHandler = requestHandler;
-        //new comboOnClose
+        //new comboOnClose, 注册成功后才由registry监听, 避免被拒绝的重复连接关闭时注销同一instanceId的在线实例
         this.comboOnClose = Mono.firstWithSignal(requestHandler.onClose(), requester.onClose());
-        this.comboOnClose.doOnTerminate(this::hideServices).subscribeOn(Schedulers.parallel()).subscribe();
     }
 
     @Nonnull
@@ -294,4 +292,8 @@ public final class RSocketService implements CloudEventRSocket {
     RSocket getRequester() {
         return requester;
     }
+
+    Set<ServiceLocator> getPeerServices() {
+        return peerServices;
+    }
 }
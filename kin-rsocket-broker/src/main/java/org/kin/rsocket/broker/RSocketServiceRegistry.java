@@ -2,15 +2,13 @@ package org.kin.rsocket.broker;
 
 import io.cloudevents.CloudEvent;
 import io.micrometer.core.instrument.Metrics;
-import io.netty.util.collection.IntObjectHashMap;
+import io.micrometer.core.instrument.Timer;
 import io.rsocket.ConnectionSetupPayload;
 import io.rsocket.RSocket;
 import io.rsocket.SocketAcceptor;
 import io.rsocket.exceptions.ApplicationErrorException;
 import io.rsocket.exceptions.RejectedSetupException;
-import org.eclipse.collections.impl.map.mutable.UnifiedMap;
-import org.eclipse.collections.impl.multimap.list.FastListMultimap;
-import org.eclipse.collections.impl.multimap.set.UnifiedSetMultimap;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.kin.framework.utils.CollectionUtils;
 import org.kin.framework.utils.MurmurHash3;
 import org.kin.framework.utils.StringUtils;
@@ -19,6 +17,7 @@ import org.kin.rsocket.auth.RSocketAppPrincipal;
 import org.kin.rsocket.broker.cluster.BrokerInfo;
 import org.kin.rsocket.broker.cluster.RSocketBrokerManager;
 import org.kin.rsocket.core.*;
+import org.kin.rsocket.core.domain.AppStatus;
 import org.kin.rsocket.core.event.AppStatusEvent;
 import org.kin.rsocket.core.event.CloudEventBus;
 import org.kin.rsocket.core.event.ServiceInstanceChangedEvent;
@@ -27,6 +26,7 @@ import org.kin.rsocket.core.metadata.AppMetadata;
 import org.kin.rsocket.core.metadata.BearerTokenMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 import org.kin.rsocket.core.utils.RetryNonSerializedEmitFailureHandler;
+import org.kin.rsocket.core.utils.Separators;
 import org.kin.rsocket.core.utils.Symbols;
 import org.kin.rsocket.core.utils.Topologys;
 import org.slf4j.Logger;
@@ -34,22 +34,25 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  * broker 路由数据管理, 缓存service provider的信息
  * <p>
- * 1. 基于copy on write更新数据
- * 2. 因为加锁, 对服务注册性能有影响, 但不影响路由性能
- * 3. 同时注册服务数量较多数, 对瞬时内存(新生代)要求比较高, 因为每次注册需要全量复制缓存数据
+ * 1. 所有路由数据存储于不可变的{@link Snapshot}, 通过一个volatile引用发布, 读无锁, 且不会读到更新了一半的数据
+ * 2. 基于{@link PersistentHashMap}结构共享, 每次注册或注销仅复制变化部分, 开销与已注册app instance数量基本无关
+ * 3. 写操作仍需串行, 但临界区很短, 不影响路由性能
  * 4. 为了追求更高性能, 保证数据路由最终一致性, 不保证读立即可见性
  *
  * @author huangjianqin
@@ -57,6 +60,8 @@ import java.util.stream.Collectors;
  */
 public final class RSocketServiceRegistry {
     private static final Logger log = LoggerFactory.getLogger(RSocketServiceRegistry.class);
+    /** 单个服务最多缓存的转发路由数量, 即handler数量 */
+    private static final int MAX_ROUTES_PER_SERVICE = 1024;
     private final RSocketFilterChain rsocketFilterChain;
     private final Sinks.Many<String> notificationSink;
     /** 监听p2p服务实例变化 */
@@ -68,22 +73,48 @@ public final class RSocketServiceRegistry {
     private final UpstreamCluster upstreamBrokers;
     private final ProviderRouter router;
 
-    /** 修改数据需加锁 */
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    /** key -> hash(app instance UUID), value -> 对应rsocket service */
-    private Map<Integer, RSocketService> instanceId2Service = new UnifiedMap<>();
-    /** key -> app instance UUID, value -> 对应rsocket service */
-    private Map<String, RSocketService> uuid2Service = new UnifiedMap<>();
-    /** key -> app name, value -> rsocket service list */
-    private FastListMultimap<String, RSocketService> appName2Service = new FastListMultimap<>();
+    /** 修改数据需加锁, 保证写串行 */
+    private final Lock writeLock = new ReentrantLock();
+    /** 当前路由数据快照 */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
-    /** key -> serviceId, value -> service info */
-    private IntObjectHashMap<ServiceLocator> services = new IntObjectHashMap<>();
-    /** key -> instanceId, value -> list(serviceId) */
-    private UnifiedSetMultimap<Integer, Integer> instanceId2ServiceIds = new UnifiedSetMultimap<>();
+    /**
+     * 转发路由缓存, key -> serviceId, value -> {key -> handlerId, value -> {@link ServiceRoute}}
+     * 服务不再有任何instance提供时失效, 仅缓存合法的handlerId, 详见{@link #getOrCreateRoute(int, int, String)}
+     */
+    private final NonBlockingHashMapLong<NonBlockingHashMapLong<ServiceRoute>> routes = new NonBlockingHashMapLong<>();
+    /** 批量注册队列, 未开启批量注册则为null */
+    private final Sinks.Many<PendingRegistration> registrationSink;
+    /** 批量注册线程, 未开启批量注册则为null */
+    private final Scheduler registerScheduler;
+    /** setup处理线程池, 解析setup payload, 校验token以及注册等逻辑都在此执行, 避免占用接收setup的netty io线程 */
+    private final Scheduler setupScheduler;
+    /** setup排队队列, 限制同时处理的setup数量, 超过上限的setup排队等待而不是拒绝, 未限制则为null */
+    private final Sinks.Many<Mono<Void>> setupSink;
+    /** 排队及正在处理的setup数量 */
+    private final AtomicInteger pendingSetups = new AtomicInteger();
+    /** setup处理耗时, 包含排队时间 */
+    private final Timer setupTimer;
 
-    /** consumer订阅p2p服务信息, key -> service id(gsv), value -> app instance UUID list */
-    private UnifiedSetMultimap<String, Integer> p2pServiceConsumers = new UnifiedSetMultimap<>();
+    /**
+     * 不包含任何{@link AbstractRSocketFilter}的broker服务注册中心, 供非spring环境(比如benchmark)使用
+     */
+    public RSocketServiceRegistry(Sinks.Many<String> notificationSink,
+                                  AuthenticationService authenticationService,
+                                  RSocketBrokerManager brokerManager,
+                                  RSocketServiceMeshInspector serviceMeshInspector,
+                                  boolean authRequired,
+                                  UpstreamCluster upstreamBrokers,
+                                  ProviderRouter router,
+                                  Sinks.Many<String> p2pServiceNotificationSink,
+                                  int registerBatchWindow,
+                                  int registerBatchSize,
+                                  int setupParallelism,
+                                  int maxConcurrentSetups) {
+        this(new RSocketFilterChain(Collections.emptyList()), notificationSink, authenticationService, brokerManager,
+                serviceMeshInspector, authRequired, upstreamBrokers, router, p2pServiceNotificationSink,
+                registerBatchWindow, registerBatchSize, setupParallelism, maxConcurrentSetups);
+    }
 
     public RSocketServiceRegistry(RSocketFilterChain filterChain,
                                   Sinks.Many<String> notificationSink,
@@ -93,7 +124,11 @@ public final class RSocketServiceRegistry {
                                   boolean authRequired,
                                   UpstreamCluster upstreamBrokers,
                                   ProviderRouter router,
-                                  Sinks.Many<String> p2pServiceNotificationSink) {
+                                  Sinks.Many<String> p2pServiceNotificationSink,
+                                  int registerBatchWindow,
+                                  int registerBatchSize,
+                                  int setupParallelism,
+                                  int maxConcurrentSetups) {
         this.rsocketFilterChain = filterChain;
         this.notificationSink = notificationSink;
         this.authenticationService = authenticationService;
@@ -107,12 +142,48 @@ public final class RSocketServiceRegistry {
         }
         this.router = router;
         this.p2pServiceNotificationSink = p2pServiceNotificationSink;
+        if (registerBatchWindow > 0) {
+            //开启批量注册, 时间窗口内接入的app合并成一次注册
+            this.registrationSink = Sinks.many().unicast().onBackpressureBuffer();
+            this.registerScheduler = Schedulers.newSingle("RSocketServiceRegistry-Register", true);
+            this.registrationSink.asFlux()
+                    .bufferTimeout(Math.max(registerBatchSize, 1), Duration.ofMillis(registerBatchWindow))
+                    .publishOn(registerScheduler)
+                    .subscribe(this::registerRSocketServices);
+        } else {
+            this.registrationSink = null;
+            this.registerScheduler = null;
+        }
+        this.setupScheduler = Schedulers.newParallel("RSocketServiceRegistry-Setup", Math.max(setupParallelism, 1), true);
+        if (maxConcurrentSetups > 0) {
+            this.setupSink = Sinks.many().unicast().onBackpressureBuffer();
+            this.setupSink.asFlux().flatMap(setup -> setup, maxConcurrentSetups).subscribe();
+        } else {
+            this.setupSink = null;
+        }
+        this.setupTimer = Metrics.timer(MetricsNames.BROKER_SETUP);
+        Metrics.gauge(MetricsNames.BROKER_SETUP_PENDING_NUM, pendingSetups);
 
-        Metrics.gauge(MetricsNames.BROKER_APPS_NUM, this, manager -> manager.appName2Service.size());
+        Metrics.gauge(MetricsNames.BROKER_APPS_NUM, this, manager -> manager.snapshot.appName2Service.size());
         Metrics.gauge(MetricsNames.BROKER_SERVICE_PROVIDER_NUM, this,
-                manager -> manager.appName2Service.valuesView()
-                        .sumOfInt(rsocketService -> (rsocketService.isPublishServicesOnly() || rsocketService.isConsumeAndPublishServices()) ? 0 : 1));
-        Metrics.gauge(MetricsNames.BROKER_SERVICE_NUM, this, manager -> manager.services.size());
+                manager -> manager.snapshot.instanceId2Service.values().stream()
+                        .mapToInt(rsocketService -> (rsocketService.isPublishServicesOnly() || rsocketService.isConsumeAndPublishServices()) ? 0 : 1)
+                        .sum());
+        Metrics.gauge(MetricsNames.BROKER_SERVICE_NUM, this, manager -> manager.snapshot.services.size());
+    }
+
+    /**
+     * 释放资源, 即关闭setup处理线程池和批量注册线程
+     */
+    public void dispose() {
+        if (Objects.nonNull(setupSink)) {
+            setupSink.emitComplete(RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+        }
+        if (Objects.nonNull(registrationSink)) {
+            registrationSink.emitComplete(RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+            registerScheduler.dispose();
+        }
+        setupScheduler.dispose();
     }
 
     /**
@@ -124,10 +195,40 @@ public final class RSocketServiceRegistry {
 
     /**
      * service rsocket service acceptor逻辑
+     * <p>
+     * 接收setup的netty io线程仅负责排队, 其余逻辑(包括rsa校验token)交由{@link #setupScheduler}处理,
+     * 避免大量app重连时, 串行校验token阻塞io线程转发请求. 同时处理的setup数量达到上限时, 后续setup排队等待, 不会拒绝连接
      */
-    @SuppressWarnings("ConstantConditions")
     @Nonnull
     private Mono<RSocket> acceptor(ConnectionSetupPayload setupPayload, RSocket requester) {
+        pendingSetups.incrementAndGet();
+        long startNanos = System.nanoTime();
+        //setup payload在返回的mono结束后才会被释放, 故可以异步处理
+        Mono<RSocket> setup = Mono.defer(() -> accept(setupPayload, requester))
+                .subscribeOn(setupScheduler)
+                .doFinally(signalType -> {
+                    pendingSetups.decrementAndGet();
+                    setupTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                });
+        if (Objects.isNull(setupSink)) {
+            return setup;
+        }
+
+        Sinks.One<RSocket> result = Sinks.one();
+        setupSink.emitNext(setup.doOnNext(result::tryEmitValue)
+                        .doOnError(result::tryEmitError)
+                        .onErrorResume(e -> Mono.empty())
+                        .then(),
+                RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+        return result.asMono();
+    }
+
+    /**
+     * 解析setup payload, 校验token, 并注册app
+     */
+    @SuppressWarnings("ConstantConditions")
+    @Nonnull
+    private Mono<RSocket> accept(ConnectionSetupPayload setupPayload, RSocket requester) {
         //parse setup payload
         RSocketCompositeMetadata compositeMetadata = null;
         AppMetadata appMetadata = null;
@@ -199,12 +300,19 @@ public final class RSocketServiceRegistry {
             RSocketServiceRequestHandler requestHandler = new RSocketServiceRequestHandler(setupPayload, appMetadata, principal,
                     this, serviceMeshInspector, upstreamBrokers, rsocketFilterChain);
             RSocketService rsocketService = new RSocketService(compositeMetadata, appMetadata, requester, this, requestHandler);
-            rsocketService.onClose()
-                    .doOnTerminate(() -> onRSocketServiceDisposed(rsocketService))
-                    .subscribeOn(Schedulers.parallel())
-                    .subscribe();
+            if (Objects.nonNull(registrationSink)) {
+                //批量注册, 注册完成后才响应setup
+                PendingRegistration registration = new PendingRegistration(rsocketService);
+                registrationSink.emitNext(registration, RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+                String appName = appMetadata.getName();
+                return registration.registered.asMono()
+                        .doOnSuccess(v -> log.info(String.format("succeed to accept connection from application '%s'", appName)))
+                        .thenReturn((RSocket) requestHandler)
+                        .onErrorResume(e -> returnRejectedRSocket(String.format("failed to accept the connection: %s", e.getMessage()), requester));
+            }
             //handler registration notify
             registerRSocketService(rsocketService);
+            watchClose(rsocketService);
             //connect success, so publish service now
             rsocketService.publishServices();
             log.info(String.format("succeed to accept connection from application '%s'", appMetadata.getName()));
@@ -222,34 +330,31 @@ public final class RSocketServiceRegistry {
     private void registerRSocketService(RSocketService rsocketService) {
         AppMetadata appMetadata = rsocketService.getAppMetadata();
 
-        Lock writeLock = lock.writeLock();
+        Integer instanceId = rsocketService.getId();
         writeLock.lock();
         try {
-            //copy on write
-            Map<String, RSocketService> uuid2Service = new UnifiedMap<>(this.uuid2Service);
-            uuid2Service.put(appMetadata.getUuid(), rsocketService);
-
-            Integer instanceId = rsocketService.getId();
-
-            Map<Integer, RSocketService> instanceId2Service = new UnifiedMap<>(this.instanceId2Service);
-            instanceId2Service.put(instanceId, rsocketService);
-
-            FastListMultimap<String, RSocketService> appName2Service = new FastListMultimap<>(this.appName2Service);
-            appName2Service.put(appMetadata.getName(), rsocketService);
+            //copy on write, 仅复制变化部分
+            Snapshot snapshot = this.snapshot;
+            String appName = appMetadata.getName();
+            PersistentHashMap<Integer, RSocketService> appServices = snapshot.appName2Service.getOrDefault(appName, PersistentHashMap.empty());
 
-            UnifiedSetMultimap<String, Integer> p2pServiceConsumers = new UnifiedSetMultimap<>(this.p2pServiceConsumers);
+            PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers = snapshot.p2pServiceConsumers;
             for (String p2pService : appMetadata.getP2pServiceIds()) {
-                p2pServiceConsumers.put(p2pService, instanceId);
-                rsocketService.fireCloudEvent(newServiceInstanceChangedCloudEvent(p2pService)).subscribe();
+                p2pServiceConsumers = putP2pServiceConsumer(p2pServiceConsumers, p2pService, instanceId);
             }
 
-            this.uuid2Service = uuid2Service;
-            this.instanceId2Service = instanceId2Service;
-            this.appName2Service = appName2Service;
-            this.p2pServiceConsumers = p2pServiceConsumers;
+            this.snapshot = new Snapshot(snapshot.version + 1,
+                    snapshot.instanceId2Service.put(instanceId, rsocketService),
+                    snapshot.uuid2Service.put(appMetadata.getUuid(), rsocketService),
+                    snapshot.appName2Service.put(appName, appServices.put(instanceId, rsocketService)),
+                    snapshot.services, snapshot.serviceInstanceCounts, snapshot.instanceId2ServiceIds,
+                    p2pServiceConsumers);
         } finally {
             writeLock.unlock();
         }
+        for (String p2pService : appMetadata.getP2pServiceIds()) {
+            rsocketService.fireCloudEvent(newServiceInstanceChangedCloudEvent(p2pService)).subscribe();
+        }
         //广播事件
         CloudEventBus.INSTANCE.postCloudEvent(AppStatusEvent.connected(appMetadata.getUuid()).toCloudEvent());
         if (!brokerManager.isStandAlone()) {
@@ -260,36 +365,206 @@ public final class RSocketServiceRegistry {
                 RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
     }
 
+    /**
+     * 批量注册downstream信息及其服务, 合并成一次快照更新, 一次router更新以及一次通知
+     * 逻辑与{@link #registerRSocketService(RSocketService)}和{@link RSocketService#publishServices()}一致
+     */
+    private void registerRSocketServices(List<PendingRegistration> registrations) {
+        //成功注册的app
+        List<RSocketService> registered = new ArrayList<>(registrations.size());
+        //发布了服务的app
+        List<RSocketService> published = new ArrayList<>(registrations.size());
+        //需通知实例变化的p2p服务gsv
+        Set<String> changedP2pServices = new HashSet<>();
+        writeLock.lock();
+        try {
+            //copy on write, 批量仅发布一次快照
+            Snapshot snapshot = this.snapshot;
+            PersistentHashMap<Integer, RSocketService> instanceId2Service = snapshot.instanceId2Service;
+            PersistentHashMap<String, RSocketService> uuid2Service = snapshot.uuid2Service;
+            PersistentHashMap<String, PersistentHashMap<Integer, RSocketService>> appName2Service = snapshot.appName2Service;
+            PersistentHashMap<Integer, ServiceLocator> services = snapshot.services;
+            PersistentHashMap<Integer, Integer> serviceInstanceCounts = snapshot.serviceInstanceCounts;
+            PersistentHashMap<Integer, Set<Integer>> instanceId2ServiceIds = snapshot.instanceId2ServiceIds;
+            PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers = snapshot.p2pServiceConsumers;
+
+            for (PendingRegistration registration : registrations) {
+                RSocketService rsocketService = registration.rsocketService;
+                AppMetadata appMetadata = rsocketService.getAppMetadata();
+                Integer instanceId = rsocketService.getId();
+                if (rsocketService.getRequester().isDisposed()) {
+                    //等待注册期间连接已断开
+                    registration.registered.tryEmitError(new IllegalStateException("connection closed before registered"));
+                    continue;
+                }
+                if (instanceId2Service.containsKey(instanceId)) {
+                    //同一批次中的重复连接
+                    registration.registered.tryEmitError(new IllegalStateException("Connection created already, Please don't create multiple connections."));
+                    continue;
+                }
+
+                String appName = appMetadata.getName();
+                instanceId2Service = instanceId2Service.put(instanceId, rsocketService);
+                uuid2Service = uuid2Service.put(appMetadata.getUuid(), rsocketService);
+                appName2Service = appName2Service.put(appName,
+                        appName2Service.getOrDefault(appName, PersistentHashMap.empty()).put(instanceId, rsocketService));
+                for (String p2pService : appMetadata.getP2pServiceIds()) {
+                    p2pServiceConsumers = putP2pServiceConsumer(p2pServiceConsumers, p2pService, instanceId);
+                }
+                registered.add(rsocketService);
+
+                //publish services
+                Set<ServiceLocator> peerServices = rsocketService.getPeerServices();
+                if (CollectionUtils.isEmpty(peerServices) || instanceId2ServiceIds.containsKey(instanceId)) {
+                    continue;
+                }
+                Set<Integer> serviceIds = new HashSet<>();
+                for (ServiceLocator serviceLocator : peerServices) {
+                    int serviceId = serviceLocator.getId();
+                    if (!serviceIds.add(serviceId)) {
+                        continue;
+                    }
+
+                    Integer instanceCount = serviceInstanceCounts.get(serviceId);
+                    if (Objects.isNull(instanceCount)) {
+                        //新服务, 移除可能残留的路由缓存
+                        services = services.put(serviceId, serviceLocator);
+                        routes.remove(serviceId);
+                        instanceCount = 0;
+                    }
+                    serviceInstanceCounts = serviceInstanceCounts.put(serviceId, instanceCount + 1);
+
+                    String gsv = serviceLocator.getGsv();
+                    if (p2pServiceConsumers.containsKey(gsv)) {
+                        changedP2pServices.add(gsv);
+                    }
+                }
+                instanceId2ServiceIds = instanceId2ServiceIds.put(instanceId, Collections.unmodifiableSet(serviceIds));
+                rsocketService.setAppStatus(AppStatus.SERVING);
+                published.add(rsocketService);
+            }
+
+            this.snapshot = new Snapshot(snapshot.version + 1, instanceId2Service, uuid2Service, appName2Service,
+                    services, serviceInstanceCounts, instanceId2ServiceIds, p2pServiceConsumers);
+
+            if (!published.isEmpty()) {
+                router.onAppsRegistered(published);
+            }
+        } catch (Exception e) {
+            log.error("batch register rsocket services error", e);
+            for (PendingRegistration registration : registrations) {
+                registration.registered.tryEmitError(e);
+            }
+            return;
+        } finally {
+            writeLock.unlock();
+        }
+
+        for (RSocketService rsocketService : registered) {
+            watchClose(rsocketService);
+        }
+
+        try {
+            notifyRegistered(registered, changedP2pServices);
+        } catch (Exception e) {
+            log.error("notify rsocket services registered error", e);
+        } finally {
+            for (PendingRegistration registration : registrations) {
+                registration.registered.tryEmitEmpty();
+            }
+        }
+    }
+
+    /**
+     * 批量注册完成后, 广播事件
+     *
+     * @param registered         成功注册的app
+     * @param changedP2pServices 需通知实例变化的p2p服务gsv
+     */
+    private void notifyRegistered(List<RSocketService> registered, Set<String> changedP2pServices) {
+        //p2p service notification, 同一服务仅通知一次
+        for (String gsv : changedP2pServices) {
+            p2pServiceNotificationSink.emitNext(gsv, RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+        }
+
+        //同一拓扑的broker集群变化事件仅创建一次
+        Map<String, CloudEvent> topology2ClustersChangedEvent = new HashMap<>(4);
+        for (RSocketService rsocketService : registered) {
+            AppMetadata appMetadata = rsocketService.getAppMetadata();
+            for (String p2pService : appMetadata.getP2pServiceIds()) {
+                rsocketService.fireCloudEvent(newServiceInstanceChangedCloudEvent(p2pService)).subscribe();
+            }
+            //广播事件
+            CloudEventBus.INSTANCE.postCloudEvent(AppStatusEvent.connected(appMetadata.getUuid()).toCloudEvent());
+            if (!brokerManager.isStandAlone()) {
+                //如果不是单节点, 则广播broker uris变化给downstream
+                CloudEvent clustersChangedEvent = topology2ClustersChangedEvent.computeIfAbsent(appMetadata.getTopology(),
+                        topology -> newBrokerClustersChangedCloudEvent(brokerManager.all(), topology));
+                rsocketService.fireCloudEvent(clustersChangedEvent).subscribe();
+            }
+        }
+
+        if (!registered.isEmpty()) {
+            String onlineApps = registered.stream()
+                    .map(rsocketService -> String.format("'%s' with ip '%s'", rsocketService.getAppMetadata().getName(), rsocketService.getAppMetadata().getIp()))
+                    .collect(Collectors.joining(", "));
+            notificationSink.emitNext(String.format("%d apps online now! %s", registered.size(), onlineApps),
+                    RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+        }
+    }
+
+    /**
+     * 注册成功后才监听{@link RSocketService}关闭, 关闭时注销其服务并移除
+     * 被拒绝的重复连接不会监听, 故其关闭时不会影响同一instanceId的在线实例
+     */
+    private void watchClose(RSocketService rsocketService) {
+        rsocketService.onClose()
+                .doOnTerminate(() -> {
+                    if (getByInstanceId(rsocketService.getId()) != rsocketService) {
+                        //已被移除
+                        return;
+                    }
+                    rsocketService.hideServices();
+                    onRSocketServiceDisposed(rsocketService);
+                })
+                .subscribeOn(Schedulers.parallel())
+                .subscribe();
+    }
+
     /**
      * {@link RSocketService} disposed时触发的逻辑
      */
     private void onRSocketServiceDisposed(RSocketService rsocketService) {
         AppMetadata appMetadata = rsocketService.getAppMetadata();
 
-        Lock writeLock = lock.writeLock();
+        Integer instanceId = rsocketService.getId();
         writeLock.lock();
         try {
-            //copy on write
-            Map<String, RSocketService> uuid2Service = new UnifiedMap<>(this.uuid2Service);
-            uuid2Service.remove(rsocketService.getUuid());
-
-            Integer instanceId = rsocketService.getId();
-
-            Map<Integer, RSocketService> instanceId2Service = new UnifiedMap<>(this.instanceId2Service);
-            instanceId2Service.remove(instanceId);
-
-            FastListMultimap<String, RSocketService> appName2Service = new FastListMultimap<>(this.appName2Service);
-            appName2Service.remove(appMetadata.getName(), rsocketService);
+            //copy on write, 仅复制变化部分
+            Snapshot snapshot = this.snapshot;
+            if (snapshot.instanceId2Service.get(instanceId) != rsocketService) {
+                //同一instanceId已是其他实例, 不能移除
+                return;
+            }
+            String appName = appMetadata.getName();
+            PersistentHashMap<String, PersistentHashMap<Integer, RSocketService>> appName2Service = snapshot.appName2Service;
+            PersistentHashMap<Integer, RSocketService> appServices = appName2Service.get(appName);
+            if (Objects.nonNull(appServices)) {
+                appServices = appServices.remove(instanceId);
+                appName2Service = appServices.isEmpty() ? appName2Service.remove(appName) : appName2Service.put(appName, appServices);
+            }
 
-            UnifiedSetMultimap<String, Integer> p2pServiceConsumers = new UnifiedSetMultimap<>(this.p2pServiceConsumers);
+            PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers = snapshot.p2pServiceConsumers;
             for (String p2pService : appMetadata.getP2pServiceIds()) {
-                p2pServiceConsumers.remove(p2pService, instanceId);
+                p2pServiceConsumers = removeP2pServiceConsumer(p2pServiceConsumers, p2pService, instanceId);
             }
 
-            this.uuid2Service = uuid2Service;
-            this.instanceId2Service = instanceId2Service;
-            this.appName2Service = appName2Service;
-            this.p2pServiceConsumers = p2pServiceConsumers;
+            this.snapshot = new Snapshot(snapshot.version + 1,
+                    snapshot.instanceId2Service.remove(instanceId),
+                    snapshot.uuid2Service.remove(rsocketService.getUuid()),
+                    appName2Service,
+                    snapshot.services, snapshot.serviceInstanceCounts, snapshot.instanceId2ServiceIds,
+                    p2pServiceConsumers);
         } finally {
             writeLock.unlock();
         }
@@ -304,35 +579,39 @@ public final class RSocketServiceRegistry {
      * 获取所有app names
      */
     public Set<String> getAllAppNames() {
-        return appName2Service.keySet().toSet();
+        return snapshot.appName2Service.keySet();
     }
 
     /**
      * 获取所有已注册的{@link RSocketService}
      */
     public Collection<RSocketService> getAllRSocketServices() {
-        return Collections.unmodifiableCollection(uuid2Service.values());
+        return snapshot.uuid2Service.values();
     }
 
     /**
      * 根据app name 获取所有已注册的{@link RSocketService}
      */
     public Collection<RSocketService> getByAppName(String appName) {
-        return Collections.unmodifiableCollection(appName2Service.get(appName));
+        PersistentHashMap<Integer, RSocketService> appServices = snapshot.appName2Service.get(appName);
+        if (Objects.isNull(appServices)) {
+            return Collections.emptyList();
+        }
+        return appServices.values();
     }
 
     /**
      * 根据app uuid 获取已注册的{@link RSocketService}
      */
     public RSocketService getByUUID(String uuid) {
-        return uuid2Service.get(uuid);
+        return snapshot.uuid2Service.get(uuid);
     }
 
     /**
      * 根据app instanceId 获取已注册的{@link RSocketService}
      */
     public RSocketService getByInstanceId(int instanceId) {
-        return instanceId2Service.get(instanceId);
+        return snapshot.instanceId2Service.get(instanceId);
     }
 
     /**
@@ -360,7 +639,7 @@ public final class RSocketServiceRegistry {
     public RSocketService routeByServiceId(int serviceId) {
         Integer instanceId = router.route(serviceId);
         if (Objects.nonNull(instanceId)) {
-            return instanceId2Service.get(instanceId);
+            return snapshot.instanceId2Service.get(instanceId);
         } else {
             return null;
         }
@@ -370,15 +649,16 @@ public final class RSocketServiceRegistry {
      * 向同一app name的所有app广播cloud event
      */
     public Mono<Void> broadcast(String appName, CloudEvent cloudEvent) {
+        Snapshot snapshot = this.snapshot;
         if (appName.equals(Symbols.BROKER)) {
             return Flux.<RSocketService>create(s -> {
-                for (RSocketService RSocketService : instanceId2Service.values()) {
+                for (RSocketService RSocketService : snapshot.instanceId2Service.values()) {
                     s.next(RSocketService);
                 }
             }).flatMap(rsocketService -> rsocketService.fireCloudEvent(cloudEvent)).then();
-        } else if (appName2Service.containsKey(appName)) {
+        } else if (snapshot.appName2Service.containsKey(appName)) {
             return Flux.<RSocketService>create(s -> {
-                for (RSocketService RSocketService : appName2Service.get(appName)) {
+                for (RSocketService RSocketService : snapshot.appName2Service.get(appName).values()) {
                     s.next(RSocketService);
                 }
             }).flatMap(rsocketService -> rsocketService.fireCloudEvent(cloudEvent)).then();
@@ -392,7 +672,7 @@ public final class RSocketServiceRegistry {
      */
     public Mono<Void> broadcast(CloudEvent cloudEvent) {
         return Flux.<RSocketService>create(s -> {
-            for (RSocketService rsocketService : appName2Service.valuesView()) {
+            for (RSocketService rsocketService : snapshot.instanceId2Service.values()) {
                 s.next(rsocketService);
             }
         }).flatMap(rsocketService -> rsocketService.fireCloudEvent(cloudEvent)).then();
@@ -402,7 +682,7 @@ public final class RSocketServiceRegistry {
      * 向指定uuid的app广播cloud event
      */
     public Mono<Void> send(String uuid, CloudEvent cloudEvent) {
-        RSocketService rsocketService = uuid2Service.get(uuid);
+        RSocketService rsocketService = snapshot.uuid2Service.get(uuid);
         if (rsocketService != null) {
             return rsocketService.fireCloudEvent(cloudEvent);
         } else {
@@ -482,31 +762,37 @@ public final class RSocketServiceRegistry {
      * 注册app instance及其服务
      */
     public void register(int instanceId, int weight, Collection<ServiceLocator> serviceLocators) {
-        Lock writeLock = lock.writeLock();
         writeLock.lock();
         try {
-            //copy on write
-            UnifiedSetMultimap<Integer, Integer> instanceId2ServiceIds = new UnifiedSetMultimap<>(this.instanceId2ServiceIds);
-            IntObjectHashMap<ServiceLocator> services = new IntObjectHashMap<>();
-            services.putAll(this.services);
+            //copy on write, 仅复制变化部分
+            Snapshot snapshot = this.snapshot;
+            PersistentHashMap<Integer, ServiceLocator> services = snapshot.services;
+            PersistentHashMap<Integer, Integer> serviceInstanceCounts = snapshot.serviceInstanceCounts;
+            Set<Integer> serviceIds = new HashSet<>(snapshot.instanceId2ServiceIds.getOrDefault(instanceId, Collections.emptySet()));
 
             for (ServiceLocator serviceLocator : serviceLocators) {
                 int serviceId = serviceLocator.getId();
                 String gsv = serviceLocator.getGsv();
 
-                if (!instanceId2ServiceIds.get(instanceId).contains(serviceId)) {
-                    instanceId2ServiceIds.put(instanceId, serviceId);
-                    services.put(serviceId, serviceLocator);
+                if (serviceIds.add(serviceId)) {
+                    Integer instanceCount = serviceInstanceCounts.get(serviceId);
+                    if (Objects.isNull(instanceCount)) {
+                        //新服务, 移除可能残留的路由缓存
+                        services = services.put(serviceId, serviceLocator);
+                        routes.remove(serviceId);
+                        instanceCount = 0;
+                    }
+                    serviceInstanceCounts = serviceInstanceCounts.put(serviceId, instanceCount + 1);
 
                     //p2p service notification
-                    if (p2pServiceConsumers.containsKey(gsv)) {
+                    if (snapshot.p2pServiceConsumers.containsKey(gsv)) {
                         p2pServiceNotificationSink.emitNext(gsv, RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
                     }
                 }
             }
 
-            this.instanceId2ServiceIds = instanceId2ServiceIds;
-            this.services = services;
+            this.snapshot = snapshot.withServices(services, serviceInstanceCounts,
+                    snapshot.instanceId2ServiceIds.put(instanceId, Collections.unmodifiableSet(serviceIds)));
 
             router.onAppRegistered(getByInstanceId(instanceId), weight, serviceLocators);
         } finally {
@@ -518,31 +804,36 @@ public final class RSocketServiceRegistry {
      * 注销app instance及其服务
      */
     public void unregister(int instanceId, int weight) {
-        Lock writeLock = lock.writeLock();
         writeLock.lock();
         try {
-            if (instanceId2ServiceIds.containsKey(instanceId)) {
-                //copy on write
-                UnifiedSetMultimap<Integer, Integer> instanceId2ServiceIds = new UnifiedSetMultimap<>(this.instanceId2ServiceIds);
-                IntObjectHashMap<ServiceLocator> services = new IntObjectHashMap<>();
-                services.putAll(this.services);
-
-                Set<Integer> serviceIds = instanceId2ServiceIds.get(instanceId);
+            Snapshot snapshot = this.snapshot;
+            Set<Integer> serviceIds = snapshot.instanceId2ServiceIds.get(instanceId);
+            if (Objects.nonNull(serviceIds)) {
+                //copy on write, 仅复制变化部分
+                PersistentHashMap<Integer, ServiceLocator> services = snapshot.services;
+                PersistentHashMap<Integer, Integer> serviceInstanceCounts = snapshot.serviceInstanceCounts;
                 for (Integer serviceId : serviceIds) {
-                    //没有该serviceId对应instanceId了
-                    ServiceLocator serviceLocator = services.remove(serviceId);
+                    ServiceLocator serviceLocator = services.get(serviceId);
+                    int instanceCount = serviceInstanceCounts.getOrDefault(serviceId, 1) - 1;
+                    if (instanceCount > 0) {
+                        serviceInstanceCounts = serviceInstanceCounts.put(serviceId, instanceCount);
+                    } else {
+                        //没有该serviceId对应instanceId了
+                        services = services.remove(serviceId);
+                        serviceInstanceCounts = serviceInstanceCounts.remove(serviceId);
+                        routes.remove(serviceId.intValue());
+                    }
+
                     if (Objects.nonNull(serviceLocator)) {
                         String gsv = serviceLocator.getGsv();
-                        if (p2pServiceConsumers.containsKey(gsv)) {
+                        if (snapshot.p2pServiceConsumers.containsKey(gsv)) {
                             p2pServiceNotificationSink.emitNext(gsv, RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
                         }
                     }
                 }
-                //移除该instanceId对应的所有serviceId
-                instanceId2ServiceIds.removeAll(instanceId);
 
-                this.instanceId2ServiceIds = instanceId2ServiceIds;
-                this.services = services;
+                //移除该instanceId对应的所有serviceId
+                this.snapshot = snapshot.withServices(services, serviceInstanceCounts, snapshot.instanceId2ServiceIds.remove(instanceId));
 
                 router.onServiceUnregistered(instanceId, weight, serviceIds);
             }
@@ -555,26 +846,32 @@ public final class RSocketServiceRegistry {
      * 注销app instance及其服务
      */
     public void unregister(int instanceId, int weight, int serviceId) {
-        Lock writeLock = lock.writeLock();
         writeLock.lock();
         try {
-            if (instanceId2ServiceIds.containsKey(instanceId)) {
-                //copy on write
-                UnifiedSetMultimap<Integer, Integer> instanceId2ServiceIds = new UnifiedSetMultimap<>(this.instanceId2ServiceIds);
-                IntObjectHashMap<ServiceLocator> services = new IntObjectHashMap<>();
-                services.putAll(this.services);
-
-                //没有该serviceId对应instanceId了
-                services.remove(serviceId);
+            Snapshot snapshot = this.snapshot;
+            Set<Integer> oldServiceIds = snapshot.instanceId2ServiceIds.get(instanceId);
+            if (Objects.nonNull(oldServiceIds) && oldServiceIds.contains(serviceId)) {
+                //copy on write, 仅复制变化部分
+                PersistentHashMap<Integer, ServiceLocator> services = snapshot.services;
+                PersistentHashMap<Integer, Integer> serviceInstanceCounts = snapshot.serviceInstanceCounts;
+                int instanceCount = serviceInstanceCounts.getOrDefault(serviceId, 1) - 1;
+                if (instanceCount > 0) {
+                    serviceInstanceCounts = serviceInstanceCounts.put(serviceId, instanceCount);
+                } else {
+                    //没有该serviceId对应instanceId了
+                    services = services.remove(serviceId);
+                    serviceInstanceCounts = serviceInstanceCounts.remove(serviceId);
+                    routes.remove(serviceId);
+                }
 
                 //移除该instanceId上的serviceId
-                instanceId2ServiceIds.remove(instanceId, serviceId);
-                if (!instanceId2ServiceIds.containsKey(instanceId)) {
-                    instanceId2ServiceIds.removeAll(instanceId);
-                }
+                Set<Integer> serviceIds = new HashSet<>(oldServiceIds);
+                serviceIds.remove(serviceId);
+                PersistentHashMap<Integer, Set<Integer>> instanceId2ServiceIds = serviceIds.isEmpty() ?
+                        snapshot.instanceId2ServiceIds.remove(instanceId) :
+                        snapshot.instanceId2ServiceIds.put(instanceId, Collections.unmodifiableSet(serviceIds));
 
-                this.instanceId2ServiceIds = instanceId2ServiceIds;
-                this.services = services;
+                this.snapshot = snapshot.withServices(services, serviceInstanceCounts, instanceId2ServiceIds);
 
                 router.onServiceUnregistered(instanceId, weight, Collections.singleton(serviceId));
             }
@@ -587,28 +884,91 @@ public final class RSocketServiceRegistry {
      * 根据instanceId获取其所有serviceId
      */
     public Set<Integer> getServiceIds(int instanceId) {
-        return Collections.unmodifiableSet(instanceId2ServiceIds.get(instanceId));
+        return snapshot.instanceId2ServiceIds.getOrDefault(instanceId, Collections.emptySet());
     }
 
     /**
      * instanceId是否已注册
      */
     public boolean containsInstanceId(int instanceId) {
-        return instanceId2ServiceIds.containsKey(instanceId);
+        return snapshot.instanceId2ServiceIds.containsKey(instanceId);
     }
 
     /**
      * serviceId是否已注册
      */
     public boolean containsServiceId(int serviceId) {
-        return services.containsKey(serviceId);
+        return snapshot.services.containsKey(serviceId);
     }
 
     /**
      * 根据serviceId获取其数据, 即{@link ServiceLocator}
      */
     public ServiceLocator getServiceLocator(int serviceId) {
-        return services.get(serviceId);
+        return snapshot.services.get(serviceId);
+    }
+
+    /**
+     * 获取已缓存的转发路由
+     */
+    @Nullable
+    ServiceRoute getRoute(int serviceId, int handlerId) {
+        NonBlockingHashMapLong<ServiceRoute> handlerId2Route = routes.get(serviceId);
+        if (Objects.isNull(handlerId2Route)) {
+            return null;
+        }
+        return handlerId2Route.get(handlerId);
+    }
+
+    /**
+     * 获取转发路由, 不存在则创建并缓存
+     * <p>
+     * handlerId由请求方提供, 仅当其与已注册服务及handler name一致时才缓存, 且单个服务缓存的路由数量有上限,
+     * 避免请求方随意构造handlerId导致路由缓存及metrics无限增长
+     *
+     * @return null, 则表示服务未注册, 或者不缓存该路由
+     */
+    @Nullable
+    ServiceRoute getOrCreateRoute(int serviceId, int handlerId, String handler) {
+        ServiceRoute route = getRoute(serviceId, handlerId);
+        if (Objects.nonNull(route)) {
+            return route;
+        }
+
+        ServiceLocator serviceLocator = getServiceLocator(serviceId);
+        if (Objects.isNull(serviceLocator)) {
+            return null;
+        }
+        if (StringUtils.isBlank(handler) ||
+                handlerId != MurmurHash3.hash32(serviceLocator.getService() + Separators.SERVICE_HANDLER + handler)) {
+            //handlerId与服务及handler name不一致
+            return null;
+        }
+
+        NonBlockingHashMapLong<ServiceRoute> handlerId2Route = routes.get(serviceId);
+        if (Objects.isNull(handlerId2Route)) {
+            NonBlockingHashMapLong<ServiceRoute> newHandlerId2Route = new NonBlockingHashMapLong<>();
+            handlerId2Route = routes.putIfAbsent(serviceId, newHandlerId2Route);
+            if (Objects.isNull(handlerId2Route)) {
+                handlerId2Route = newHandlerId2Route;
+            }
+        }
+        if (handlerId2Route.size() >= MAX_ROUTES_PER_SERVICE) {
+            //超过上限, 不再缓存
+            return null;
+        }
+
+        route = new ServiceRoute(serviceLocator, handler);
+        ServiceRoute old = handlerId2Route.putIfAbsent(handlerId, route);
+        if (Objects.nonNull(old)) {
+            return old;
+        }
+
+        if (!containsServiceId(serviceId)) {
+            //并发注销, 移除可能残留的路由缓存
+            routes.remove(serviceId);
+        }
+        return route;
     }
 
     /**
@@ -644,7 +1004,7 @@ public final class RSocketServiceRegistry {
      * 获取所有服务数据
      */
     public Collection<ServiceLocator> getAllServices() {
-        return Collections.unmodifiableCollection(services.values());
+        return snapshot.services.values();
     }
 
     /**
@@ -680,8 +1040,12 @@ public final class RSocketServiceRegistry {
     /**
      * 获取指定rsocket服务的p2p consumer端 instance id list
      */
-    private Set<Integer> getP2pServiceConsumerInstanceIds(String gsv) {
-        return p2pServiceConsumers.get(gsv);
+    private Collection<Integer> getP2pServiceConsumerInstanceIds(String gsv) {
+        PersistentHashMap<Integer, Integer> consumers = snapshot.p2pServiceConsumers.get(gsv);
+        if (Objects.isNull(consumers)) {
+            return Collections.emptyList();
+        }
+        return consumers.values();
     }
 
     /**
@@ -715,15 +1079,15 @@ public final class RSocketServiceRegistry {
             appMetadata.updateP2pServiceIds(p2pServiceIds);
 
             //更新
-            Lock writeLock = lock.writeLock();
             writeLock.lock();
             try {
-                //copy on write
-                UnifiedSetMultimap<String, Integer> p2pServiceConsumers = new UnifiedSetMultimap<>(this.p2pServiceConsumers);
+                //copy on write, 仅复制变化部分
+                Snapshot snapshot = this.snapshot;
+                PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers = snapshot.p2pServiceConsumers;
                 for (String p2pService : p2pServiceIds) {
-                    p2pServiceConsumers.put(p2pService, instanceId);
+                    p2pServiceConsumers = putP2pServiceConsumer(p2pServiceConsumers, p2pService, instanceId);
                 }
-                this.p2pServiceConsumers = p2pServiceConsumers;
+                this.snapshot = snapshot.withP2pServiceConsumers(p2pServiceConsumers);
             } finally {
                 writeLock.unlock();
             }
@@ -743,5 +1107,100 @@ public final class RSocketServiceRegistry {
             }
         }
     }
-}
 
+    /**
+     * 添加p2p服务consumer
+     */
+    private static PersistentHashMap<String, PersistentHashMap<Integer, Integer>> putP2pServiceConsumer(
+            PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers, String gsv, Integer instanceId) {
+        PersistentHashMap<Integer, Integer> consumers = p2pServiceConsumers.getOrDefault(gsv, PersistentHashMap.empty());
+        return p2pServiceConsumers.put(gsv, consumers.put(instanceId, instanceId));
+    }
+
+    /**
+     * 移除p2p服务consumer
+     */
+    private static PersistentHashMap<String, PersistentHashMap<Integer, Integer>> removeP2pServiceConsumer(
+            PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers, String gsv, Integer instanceId) {
+        PersistentHashMap<Integer, Integer> consumers = p2pServiceConsumers.get(gsv);
+        if (Objects.isNull(consumers)) {
+            return p2pServiceConsumers;
+        }
+        consumers = consumers.remove(instanceId);
+        return consumers.isEmpty() ? p2pServiceConsumers.remove(gsv) : p2pServiceConsumers.put(gsv, consumers);
+    }
+
+    /**
+     * 等待批量注册的{@link RSocketService}
+     */
+    private static final class PendingRegistration {
+        private final RSocketService rsocketService;
+        /** 注册完成signal */
+        private final Sinks.Empty<Void> registered = Sinks.empty();
+
+        PendingRegistration(RSocketService rsocketService) {
+            this.rsocketService = rsocketService;
+        }
+    }
+
+    /**
+     * 不可变路由数据快照, 每次更新都会创建新实例, 但与旧实例共享未变化部分
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(0, PersistentHashMap.empty(), PersistentHashMap.empty(), PersistentHashMap.empty(),
+                PersistentHashMap.empty(), PersistentHashMap.empty(), PersistentHashMap.empty(), PersistentHashMap.empty());
+
+        /** 快照版本 */
+        private final long version;
+        /** key -> hash(app instance UUID), value -> 对应rsocket service */
+        private final PersistentHashMap<Integer, RSocketService> instanceId2Service;
+        /** key -> app instance UUID, value -> 对应rsocket service */
+        private final PersistentHashMap<String, RSocketService> uuid2Service;
+        /** key -> app name, value -> {key -> instanceId, value -> rsocket service} */
+        private final PersistentHashMap<String, PersistentHashMap<Integer, RSocketService>> appName2Service;
+        /** key -> serviceId, value -> service info */
+        private final PersistentHashMap<Integer, ServiceLocator> services;
+        /** key -> serviceId, value -> 提供该服务的instance数量 */
+        private final PersistentHashMap<Integer, Integer> serviceInstanceCounts;
+        /** key -> instanceId, value -> set(serviceId) */
+        private final PersistentHashMap<Integer, Set<Integer>> instanceId2ServiceIds;
+        /** consumer订阅p2p服务信息, key -> service id(gsv), value -> {key -> instanceId, value -> instanceId} */
+        private final PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers;
+
+        Snapshot(long version,
+                 PersistentHashMap<Integer, RSocketService> instanceId2Service,
+                 PersistentHashMap<String, RSocketService> uuid2Service,
+                 PersistentHashMap<String, PersistentHashMap<Integer, RSocketService>> appName2Service,
+                 PersistentHashMap<Integer, ServiceLocator> services,
+                 PersistentHashMap<Integer, Integer> serviceInstanceCounts,
+                 PersistentHashMap<Integer, Set<Integer>> instanceId2ServiceIds,
+                 PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers) {
+            this.version = version;
+            this.instanceId2Service = instanceId2Service;
+            this.uuid2Service = uuid2Service;
+            this.appName2Service = appName2Service;
+            this.services = services;
+            this.serviceInstanceCounts = serviceInstanceCounts;
+            this.instanceId2ServiceIds = instanceId2ServiceIds;
+            this.p2pServiceConsumers = p2pServiceConsumers;
+        }
+
+        /**
+         * @return 更新服务数据后的快照
+         */
+        Snapshot withServices(PersistentHashMap<Integer, ServiceLocator> services,
+                              PersistentHashMap<Integer, Integer> serviceInstanceCounts,
+                              PersistentHashMap<Integer, Set<Integer>> instanceId2ServiceIds) {
+            return new Snapshot(version + 1, instanceId2Service, uuid2Service, appName2Service,
+                    services, serviceInstanceCounts, instanceId2ServiceIds, p2pServiceConsumers);
+        }
+
+        /**
+         * @return 更新p2p服务consumer后的快照
+         */
+        Snapshot withP2pServiceConsumers(PersistentHashMap<String, PersistentHashMap<Integer, Integer>> p2pServiceConsumers) {
+            return new Snapshot(version + 1, instanceId2Service, uuid2Service, appName2Service,
+                    services, serviceInstanceCounts, instanceId2ServiceIds, p2pServiceConsumers);
+        }
+    }
+}
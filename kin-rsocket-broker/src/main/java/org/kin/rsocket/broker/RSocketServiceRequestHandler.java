@@ -28,8 +28,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -61,7 +63,7 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     /** default消息编码类型元数据{@link ByteBuf}实例 */
     private final ByteBuf defaultMessageMimeTypeMetadataByteBuf;
     /** 记录请求过的服务id */
-    private final Set<String> consumedServices = new NonBlockingHashSet<>();
+    private final Set<Integer> consumedServices = new NonBlockingHashSet<>();
 
     public RSocketServiceRequestHandler(ConnectionSetupPayload setupPayload,
                                         AppMetadata appMetadata,
@@ -94,42 +96,58 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     public Mono<Payload> requestResponse(@Nonnull Payload payload) {
         String frameType = FrameType.REQUEST_RESPONSE.name();
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            //快速路由信息, 直接读取metadata bytes, 无需解析
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
 
             GSVRoutingMetadata gsvRoutingMetadata;
+            int serviceId;
+            int handlerId;
+            boolean sticky;
+            ServiceRoute route;
+            //路由未缓存时才需要, 用于metrics
+            String handler;
             //为了兼容, 其余开发者rsocket broker client调用rsocket服务, 缺省部分信息, 也不会导致异常
             boolean encodingMetadataIncluded;
-            MessageMimeTypeMetadata messageMimeTypeMetadata;
-            if (Objects.isNull(binaryRoutingMetadata)) {
+            if (binaryRouting.wrap(payload.metadata())) {
+                //使用快速路由, 仅当需要时才创建GSVRoutingMetadata
+                gsvRoutingMetadata = null;
+                serviceId = binaryRouting.getServiceId();
+                handlerId = binaryRouting.getHandlerId();
+                sticky = binaryRouting.isSticky();
+                route = serviceRoute(serviceId, handlerId, binaryRouting);
+                handler = Objects.isNull(route) ? binaryRouting.getHandler() : null;
+                encodingMetadataIncluded = binaryRouting.containsMessageMimeType() || binaryRouting.containsCustomMessageMimeType();
+                binaryRouting.clear();
+            } else {
                 //回退到取GSVRoutingMetadata
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
                 if (Objects.isNull(gsvRoutingMetadata)) {
                     throw new InvalidException("no routing metadata");
                 }
-                messageMimeTypeMetadata = compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_MIME_TYPE);
-                encodingMetadataIncluded = Objects.nonNull(messageMimeTypeMetadata);
-
-            } else {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
-                //默认认为带了消息编码元数据
-                encodingMetadataIncluded = true;
+                serviceId = gsvRoutingMetadata.serviceId();
+                handlerId = gsvRoutingMetadata.handlerId();
+                sticky = gsvRoutingMetadata.isSticky();
+                route = null;
+                handler = null;
+                encodingMetadataIncluded = compositeMetadata.contains(RSocketMimeType.MESSAGE_MIME_TYPE);
             }
 
             // broker local service call
-            if (LocalRSocketServiceRegistry.INSTANCE.contains(gsvRoutingMetadata.handlerId())) {
+            if (LocalRSocketServiceRegistry.INSTANCE.contains(handlerId)) {
                 //app 与 broker通信使用rsocket connector设置的dataMimeType即可
-                return localRequestResponse(gsvRoutingMetadata, defaultMessageMimeTypeMetadata, null, payload);
+                return localRequestResponse(orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky), defaultMessageMimeTypeMetadata, null, payload);
             }
 
             //request filters
             Mono<RSocket> destination;
             if (this.filterChain.isFiltersPresent()) {
-                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_RESPONSE, gsvRoutingMetadata, this.appMetadata, payload);
+                GSVRoutingMetadata routingMetadata = orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky);
+                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_RESPONSE, routingMetadata, this.appMetadata, payload);
                 //filter可能会改变gsv metadata的数据, 影响路由结果
-                destination = filterChain.filter(filterContext).then(findDestination(gsvRoutingMetadata));
+                destination = filterChain.filter(filterContext).then(findDestination(routingMetadata));
             } else {
-                destination = findDestination(gsvRoutingMetadata);
+                destination = findDestination(gsvRoutingMetadata, serviceId, sticky);
             }
 
             destination = destination.doOnError(t -> {
@@ -139,19 +157,16 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
 
             //call destination
             return destination.flatMap(rsocket -> {
-                recordServiceInvoke(gsvRoutingMetadata.gsv());
-                if (Objects.isNull(binaryRoutingMetadata)) {
-                    MetricsUtils.metrics(gsvRoutingMetadata, frameType);
-                } else {
-                    ServiceLocator serviceLocator = serviceRegistry.getServiceLocator(binaryRoutingMetadata.getServiceId());
-                    MetricsUtils.metrics(serviceLocator, binaryRoutingMetadata.getHandler(), frameType);
-                }
+                recordServiceInvoke(serviceId);
+                metrics(route, gsvRoutingMetadata, serviceId, handler, FrameType.REQUEST_RESPONSE);
 
+                Mono<Payload> result;
                 if (encodingMetadataIncluded) {
-                    return rsocket.requestResponse(payload);
+                    result = rsocket.requestResponse(payload);
                 } else {
-                    return rsocket.requestResponse(payloadWithDataEncoding(payload));
+                    result = rsocket.requestResponse(payloadWithDataEncoding(payload));
                 }
+                return Objects.nonNull(route) ? route.timed(result) : result;
             });
         } catch (Exception e) {
             log.error(failCallLog(frameType), e);
@@ -170,42 +185,66 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     public Mono<Void> fireAndForget(@Nonnull Payload payload) {
         String frameType = FrameType.REQUEST_FNF.name();
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            //快速路由信息, 直接读取metadata bytes, 无需解析
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
 
             GSVRoutingMetadata gsvRoutingMetadata;
+            int serviceId;
+            int handlerId;
+            boolean sticky;
+            ServiceRoute route;
+            //路由未缓存时才需要, 用于metrics
+            String handler;
             //为了兼容, 其余开发者rsocket broker client调用rsocket服务, 缺省部分信息, 也不会导致异常
             boolean encodingMetadataIncluded;
-            MessageMimeTypeMetadata messageMimeTypeMetadata;
-            if (Objects.isNull(binaryRoutingMetadata)) {
+            //是否是批量请求
+            boolean batch;
+            if (binaryRouting.wrap(payload.metadata())) {
+                //使用快速路由, 仅当需要时才创建GSVRoutingMetadata
+                gsvRoutingMetadata = null;
+                serviceId = binaryRouting.getServiceId();
+                handlerId = binaryRouting.getHandlerId();
+                sticky = binaryRouting.isSticky();
+                route = serviceRoute(serviceId, handlerId, binaryRouting);
+                handler = Objects.isNull(route) ? binaryRouting.getHandler() : null;
+                encodingMetadataIncluded = binaryRouting.containsMessageMimeType() || binaryRouting.containsCustomMessageMimeType();
+                batch = binaryRouting.isBatch();
+                binaryRouting.clear();
+            } else {
                 //回退到取GSVRoutingMetadata
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
                 if (Objects.isNull(gsvRoutingMetadata)) {
                     throw new InvalidException("no routing metadata");
                 }
-                messageMimeTypeMetadata = compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_MIME_TYPE);
-                encodingMetadataIncluded = Objects.nonNull(messageMimeTypeMetadata);
-
-            } else {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
-                //默认认为带了消息编码元数据
-                encodingMetadataIncluded = true;
+                serviceId = gsvRoutingMetadata.serviceId();
+                handlerId = gsvRoutingMetadata.handlerId();
+                sticky = gsvRoutingMetadata.isSticky();
+                route = null;
+                handler = null;
+                encodingMetadataIncluded = compositeMetadata.contains(RSocketMimeType.MESSAGE_MIME_TYPE);
+                batch = compositeMetadata.contains(RSocketMimeType.BATCH);
             }
 
             // broker local service call
-            if (LocalRSocketServiceRegistry.INSTANCE.contains(gsvRoutingMetadata.handlerId())) {
+            if (LocalRSocketServiceRegistry.INSTANCE.contains(handlerId)) {
                 //app 与 broker通信使用rsocket connector设置的dataMimeType即可
-                return localFireAndForget(gsvRoutingMetadata, defaultMessageMimeTypeMetadata, payload);
+                GSVRoutingMetadata routingMetadata = orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky);
+                if (batch) {
+                    return localBatchFireAndForget(routingMetadata, defaultMessageMimeTypeMetadata, payload);
+                }
+                return localFireAndForget(routingMetadata, defaultMessageMimeTypeMetadata, payload);
             }
 
             //request filters
             Mono<RSocket> destination;
             if (this.filterChain.isFiltersPresent()) {
-                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_FNF, gsvRoutingMetadata, this.appMetadata, payload);
+                GSVRoutingMetadata routingMetadata = orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky);
+                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_FNF, routingMetadata, this.appMetadata, payload);
                 //filter可能会改变gsv metadata的数据, 影响路由结果
-                destination = filterChain.filter(filterContext).then(findDestination(gsvRoutingMetadata));
+                destination = filterChain.filter(filterContext).then(findDestination(routingMetadata));
             } else {
-                destination = findDestination(gsvRoutingMetadata);
+                destination = findDestination(gsvRoutingMetadata, serviceId, sticky);
             }
 
             destination = destination.doOnError(t -> {
@@ -215,13 +254,9 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
 
             //call destination
             return destination.flatMap(rsocket -> {
-                recordServiceInvoke(gsvRoutingMetadata.gsv());
-                if (Objects.isNull(binaryRoutingMetadata)) {
-                    MetricsUtils.metrics(gsvRoutingMetadata, frameType);
-                } else {
-                    ServiceLocator serviceLocator = serviceRegistry.getServiceLocator(binaryRoutingMetadata.getServiceId());
-                    MetricsUtils.metrics(serviceLocator, binaryRoutingMetadata.getHandler(), frameType);
-                }
+                recordServiceInvoke(serviceId);
+                metrics(route, gsvRoutingMetadata, serviceId, handler, FrameType.REQUEST_FNF);
+
                 if (encodingMetadataIncluded) {
                     return rsocket.fireAndForget(payload);
                 } else {
@@ -246,41 +281,58 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     public Flux<Payload> requestStream(@Nonnull Payload payload) {
         String frameType = FrameType.REQUEST_STREAM.name();
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(payload.metadata());
+            //快速路由信息, 直接读取metadata bytes, 无需解析
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
 
             GSVRoutingMetadata gsvRoutingMetadata;
+            int serviceId;
+            int handlerId;
+            boolean sticky;
+            ServiceRoute route;
+            //路由未缓存时才需要, 用于metrics
+            String handler;
             //为了兼容, 其余开发者rsocket broker client调用rsocket服务, 缺省部分信息, 也不会导致异常
             boolean encodingMetadataIncluded;
-            MessageMimeTypeMetadata messageMimeTypeMetadata;
-            if (Objects.isNull(binaryRoutingMetadata)) {
+            if (binaryRouting.wrap(payload.metadata())) {
+                //使用快速路由, 仅当需要时才创建GSVRoutingMetadata
+                gsvRoutingMetadata = null;
+                serviceId = binaryRouting.getServiceId();
+                handlerId = binaryRouting.getHandlerId();
+                sticky = binaryRouting.isSticky();
+                route = serviceRoute(serviceId, handlerId, binaryRouting);
+                handler = Objects.isNull(route) ? binaryRouting.getHandler() : null;
+                encodingMetadataIncluded = binaryRouting.containsMessageMimeType() || binaryRouting.containsCustomMessageMimeType();
+                binaryRouting.clear();
+            } else {
                 //回退到取GSVRoutingMetadata
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
                 if (Objects.isNull(gsvRoutingMetadata)) {
                     throw new InvalidException("no routing metadata");
                 }
-                messageMimeTypeMetadata = compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_MIME_TYPE);
-                encodingMetadataIncluded = Objects.nonNull(messageMimeTypeMetadata);
-            } else {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
-                //默认认为带了消息编码元数据
-                encodingMetadataIncluded = true;
+                serviceId = gsvRoutingMetadata.serviceId();
+                handlerId = gsvRoutingMetadata.handlerId();
+                sticky = gsvRoutingMetadata.isSticky();
+                route = null;
+                handler = null;
+                encodingMetadataIncluded = compositeMetadata.contains(RSocketMimeType.MESSAGE_MIME_TYPE);
             }
 
             // broker local service call
-            if (LocalRSocketServiceRegistry.INSTANCE.contains(gsvRoutingMetadata.handlerId())) {
+            if (LocalRSocketServiceRegistry.INSTANCE.contains(handlerId)) {
                 //app 与 broker通信使用rsocket connector设置的dataMimeType即可
-                return localRequestStream(gsvRoutingMetadata, defaultMessageMimeTypeMetadata, null, payload);
+                return localRequestStream(orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky), defaultMessageMimeTypeMetadata, null, payload);
             }
 
             //request filters
             Mono<RSocket> destination;
             if (this.filterChain.isFiltersPresent()) {
-                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_STREAM, gsvRoutingMetadata, this.appMetadata, payload);
+                GSVRoutingMetadata routingMetadata = orFastRouting(gsvRoutingMetadata, serviceId, handlerId, sticky);
+                RSocketFilterContext filterContext = RSocketFilterContext.of(FrameType.REQUEST_STREAM, routingMetadata, this.appMetadata, payload);
                 //filter可能会改变gsv metadata的数据, 影响路由结果
-                destination = filterChain.filter(filterContext).then(findDestination(gsvRoutingMetadata));
+                destination = filterChain.filter(filterContext).then(findDestination(routingMetadata));
             } else {
-                destination = findDestination(gsvRoutingMetadata);
+                destination = findDestination(gsvRoutingMetadata, serviceId, sticky);
             }
 
             destination = destination.doOnError(t -> {
@@ -288,13 +340,9 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
                 ReferenceCountUtil.safeRelease(payload);
             });
             return destination.flatMapMany(rsocket -> {
-                recordServiceInvoke(gsvRoutingMetadata.gsv());
-                if (Objects.isNull(binaryRoutingMetadata)) {
-                    MetricsUtils.metrics(gsvRoutingMetadata, frameType);
-                } else {
-                    ServiceLocator serviceLocator = serviceRegistry.getServiceLocator(binaryRoutingMetadata.getServiceId());
-                    MetricsUtils.metrics(serviceLocator, binaryRoutingMetadata.getHandler(), frameType);
-                }
+                recordServiceInvoke(serviceId);
+                metrics(route, gsvRoutingMetadata, serviceId, handler, FrameType.REQUEST_STREAM);
+
                 if (encodingMetadataIncluded) {
                     return rsocket.requestStream(payload);
                 } else {
@@ -315,33 +363,44 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     private Flux<Payload> requestChannel(Payload signal, Flux<Payload> payloads) {
         String frameType = FrameType.REQUEST_CHANNEL.name();
         try {
-            BinaryRoutingMetadata binaryRoutingMetadata = BinaryRoutingMetadata.extract(signal.metadata());
+            //快速路由信息, 直接读取metadata bytes, 无需解析
+            BinaryRoutingMetadataFlyweight binaryRouting = BinaryRoutingMetadataFlyweight.current();
 
             GSVRoutingMetadata gsvRoutingMetadata;
-            if (Objects.isNull(binaryRoutingMetadata)) {
+            int serviceId;
+            boolean sticky;
+            ServiceRoute route;
+            //路由未缓存时才需要, 用于metrics
+            String handler;
+            if (binaryRouting.wrap(signal.metadata())) {
+                //使用快速路由, 仅当需要时才创建GSVRoutingMetadata
+                gsvRoutingMetadata = null;
+                serviceId = binaryRouting.getServiceId();
+                sticky = binaryRouting.isSticky();
+                route = serviceRoute(serviceId, binaryRouting.getHandlerId(), binaryRouting);
+                handler = Objects.isNull(route) ? binaryRouting.getHandler() : null;
+                binaryRouting.clear();
+            } else {
                 //回退到取GSVRoutingMetadata
                 RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(signal.metadata());
                 gsvRoutingMetadata = compositeMetadata.getMetadata(RSocketMimeType.ROUTING);
                 if (Objects.isNull(gsvRoutingMetadata)) {
                     throw new InvalidException("no routing metadata");
                 }
-            } else {
-                gsvRoutingMetadata = binaryRoutingMetadata.toGSVRoutingMetadata();
+                serviceId = gsvRoutingMetadata.serviceId();
+                sticky = gsvRoutingMetadata.isSticky();
+                route = null;
+                handler = null;
             }
 
-            Mono<RSocket> destination = findDestination(gsvRoutingMetadata).doOnError(t -> {
+            Mono<RSocket> destination = findDestination(gsvRoutingMetadata, serviceId, sticky).doOnError(t -> {
                 log.error(failCallLog(frameType), t);
                 ReferenceCountUtil.safeRelease(signal);
                 payloads.subscribe(ReferenceCountUtil::safeRelease);
             });
             return destination.flatMapMany(rsocket -> {
-                recordServiceInvoke(gsvRoutingMetadata.gsv());
-                if (Objects.isNull(binaryRoutingMetadata)) {
-                    MetricsUtils.metrics(gsvRoutingMetadata, frameType);
-                } else {
-                    ServiceLocator serviceLocator = serviceRegistry.getServiceLocator(binaryRoutingMetadata.getServiceId());
-                    MetricsUtils.metrics(serviceLocator, binaryRoutingMetadata.getHandler(), frameType);
-                }
+                recordServiceInvoke(serviceId);
+                metrics(route, gsvRoutingMetadata, serviceId, handler, FrameType.REQUEST_CHANNEL);
                 return rsocket.requestChannel(payloads);
             });
         } catch (Exception e) {
@@ -423,65 +482,92 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
         return buf;
     }
 
+    /**
+     * 如果没有{@link GSVRoutingMetadata}, 则使用快速路由信息构建, 但实例会缺失部分服务信息细节
+     */
+    private GSVRoutingMetadata orFastRouting(GSVRoutingMetadata gsvRoutingMetadata, int serviceId, int handlerId, boolean sticky) {
+        if (Objects.nonNull(gsvRoutingMetadata)) {
+            return gsvRoutingMetadata;
+        }
+        return GSVRoutingMetadata.from(serviceId, handlerId, sticky);
+    }
+
     /**
      * 寻找目标服务provider instance
      *
-     * @param routingMetaData 当使用快速路由时, 仅包含{@link GSVRoutingMetadata#serviceId()}, {@link GSVRoutingMetadata#handlerId()}和{@link GSVRoutingMetadata#sticky()}字段
+     * @param routingMetaData 可能被filter修改, 故subscribe时才读取其路由信息
      */
     private Mono<RSocket> findDestination(GSVRoutingMetadata routingMetaData) {
-        return Mono.create(sink -> {
-            String gsv = routingMetaData.gsv();
-            Integer serviceId = routingMetaData.serviceId();
-            //错误消息提示时, 服务唯一标识显示的内容
-            String serviceErrorMsg = StringUtils.isNotBlank(gsv) ? gsv : serviceId + "";
-            RSocket rsocket = null;
-            Exception error = null;
-            //sticky session responder
-            boolean sticky = routingMetaData.isSticky();
-            RSocketService targetService = null;
-            if (sticky) {
-                // responder from sticky services
-                targetService = findStickyServiceInstance(serviceId);
-            }
+        return Mono.create(sink -> findDestination(sink, routingMetaData.gsv(), routingMetaData.serviceId(),
+                routingMetaData.getEndpoint(), routingMetaData.isSticky()));
+    }
 
-            if (targetService != null) {
-                rsocket = targetService;
+    /**
+     * 寻找目标服务provider instance
+     *
+     * @param routingMetaData 使用快速路由时为null, 此时仅根据serviceId和sticky路由
+     */
+    private Mono<RSocket> findDestination(GSVRoutingMetadata routingMetaData, int serviceId, boolean sticky) {
+        if (Objects.nonNull(routingMetaData)) {
+            return findDestination(routingMetaData);
+        }
+        return Mono.create(sink -> findDestination(sink, "", serviceId, null, sticky));
+    }
+
+    /**
+     * 寻找目标服务provider instance
+     *
+     * @param gsv      使用快速路由时为空
+     * @param endpoint 使用快速路由时为空
+     */
+    private void findDestination(MonoSink<RSocket> sink, String gsv, int serviceId, String endpoint, boolean sticky) {
+        //错误消息提示时, 服务唯一标识显示的内容
+        String serviceErrorMsg = StringUtils.isNotBlank(gsv) ? gsv : serviceId + "";
+        RSocket rsocket = null;
+        Exception error = null;
+        //sticky session responder
+        RSocketService targetService = null;
+        if (sticky) {
+            // responder from sticky services
+            targetService = findStickyServiceInstance(serviceId);
+        }
+
+        if (targetService != null) {
+            rsocket = targetService;
+        } else {
+            if (StringUtils.isNotBlank(endpoint)) {
+                targetService = serviceRegistry.getByEndpoint(endpoint, serviceId);
+                if (targetService == null) {
+                    error = new InvalidException(String.format("Service not found with endpoint '%s' '%s'", serviceErrorMsg, endpoint));
+                }
             } else {
-                String endpoint = routingMetaData.getEndpoint();
-                if (StringUtils.isNotBlank(endpoint)) {
-                    targetService = serviceRegistry.getByEndpoint(endpoint, serviceId);
-                    if (targetService == null) {
-                        error = new InvalidException(String.format("Service not found with endpoint '%s' '%s'", serviceErrorMsg, endpoint));
-                    }
-                } else {
-                    targetService = serviceRegistry.routeByServiceId(serviceId);
-                    if (Objects.isNull(targetService)) {
-                        error = new InvalidException(String.format("Service not found '%s'", serviceErrorMsg));
-                    }
+                targetService = serviceRegistry.routeByServiceId(serviceId);
+                if (Objects.isNull(targetService)) {
+                    error = new InvalidException(String.format("Service not found '%s'", serviceErrorMsg));
                 }
-                if (targetService != null) {
-                    if (serviceMeshInspector.isAllowed(this.principal, serviceId, targetService.getPrincipal())) {
-                        rsocket = targetService;
-                        //save responder id if sticky
-                        if (sticky) {
-                            this.stickyServices.put(serviceId, targetService.getId());
-                        }
-                    } else {
-                        error = new ApplicationErrorException(String.format("Service request not allowed '%s'", serviceErrorMsg));
+            }
+            if (targetService != null) {
+                if (serviceMeshInspector.isAllowed(this.principal, serviceId, targetService.getPrincipal())) {
+                    rsocket = targetService;
+                    //save responder id if sticky
+                    if (sticky) {
+                        this.stickyServices.put(serviceId, targetService.getId());
                     }
+                } else {
+                    error = new ApplicationErrorException(String.format("Service request not allowed '%s'", serviceErrorMsg));
                 }
             }
-            if (rsocket != null) {
-                sink.success(rsocket);
+        }
+        if (rsocket != null) {
+            sink.success(rsocket);
+        } else {
+            //本地找不到, 请求其他broker帮忙处理
+            if (upstreamBrokers != null && error instanceof InvalidException) {
+                sink.success(upstreamBrokers);
             } else {
-                //本地找不到, 请求其他broker帮忙处理
-                if (upstreamBrokers != null && error instanceof InvalidException) {
-                    sink.success(upstreamBrokers);
-                } else {
-                    sink.error(new ApplicationErrorException(String.format("Service not found '%s'", serviceErrorMsg), error));
-                }
+                sink.error(new ApplicationErrorException(String.format("Service not found '%s'", serviceErrorMsg), error));
             }
-        });
+        }
     }
 
     /**
@@ -497,10 +583,46 @@ public final class RSocketServiceRequestHandler extends RSocketRequestHandlerSup
     /**
      * 记录请求过的service id
      */
-    private void recordServiceInvoke(String serviceId) {
+    private void recordServiceInvoke(int serviceId) {
         consumedServices.add(serviceId);
     }
 
+    /**
+     * 获取快速路由对应的{@link ServiceRoute}, 仅首次请求才需要解码handler
+     */
+    @Nullable
+    private ServiceRoute serviceRoute(int serviceId, int handlerId, BinaryRoutingMetadataFlyweight binaryRouting) {
+        ServiceRoute route = serviceRegistry.getRoute(serviceId, handlerId);
+        if (Objects.nonNull(route)) {
+            return route;
+        }
+        return serviceRegistry.getOrCreateRoute(serviceId, handlerId, binaryRouting.getHandler());
+    }
+
+    /**
+     * 服务请求metrics
+     *
+     * @param route              使用快速路由时的路由缓存, 服务未注册或者路由未缓存时为null
+     * @param gsvRoutingMetadata 使用快速路由时为null
+     * @param handler            使用快速路由但路由未缓存时的handler name, 其余情况为null
+     */
+    private void metrics(@Nullable ServiceRoute route, @Nullable GSVRoutingMetadata gsvRoutingMetadata,
+                         int serviceId, @Nullable String handler, FrameType frameType) {
+        if (Objects.nonNull(route)) {
+            route.metrics(frameType);
+        } else if (Objects.nonNull(gsvRoutingMetadata)) {
+            MetricsUtils.metrics(gsvRoutingMetadata, frameType.name());
+        } else {
+            //路由未缓存, 根据serviceId获取服务信息
+            ServiceLocator serviceLocator = serviceRegistry.getServiceLocator(serviceId);
+            if (Objects.nonNull(serviceLocator)) {
+                MetricsUtils.metrics(serviceLocator, handler, frameType.name());
+            } else {
+                MetricsUtils.metrics(frameType.name());
+            }
+        }
+    }
+
     /**
      * 解析并获取{@link MessageMimeTypeMetadata}
      */
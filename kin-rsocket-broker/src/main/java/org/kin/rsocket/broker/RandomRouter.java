@@ -48,6 +48,26 @@ public class RandomRouter implements ProviderRouter {
         this.serviceId2InstanceIdWeightList = serviceId2InstanceIdWeightList;
     }
 
+    @Override
+    public void onAppsRegistered(Collection<RSocketService> rsocketServices) {
+        //按serviceId合并, 每个serviceId仅重新计算一次权重
+        Map<Integer, List<InstanceIdWeight>> serviceId2NewInstanceIdWeights = new HashMap<>();
+        for (RSocketService rsocketService : rsocketServices) {
+            InstanceIdWeight instanceIdWeight = new InstanceIdWeight(rsocketService.getId(), rsocketService.getAppMetadata().getWeight());
+            for (ServiceLocator serviceLocator : rsocketService.getPeerServices()) {
+                serviceId2NewInstanceIdWeights.computeIfAbsent(serviceLocator.getId(), k -> new ArrayList<>()).add(instanceIdWeight);
+            }
+        }
+
+        //copy on write, 批量仅复制一次
+        UnifiedMap<Integer, InstanceIdWeightList> serviceId2InstanceIdWeightList = new UnifiedMap<>(this.serviceId2InstanceIdWeightList);
+        for (Map.Entry<Integer, List<InstanceIdWeight>> entry : serviceId2NewInstanceIdWeights.entrySet()) {
+            serviceId2InstanceIdWeightList.getIfAbsentPut(entry.getKey(), InstanceIdWeightList::new)
+                    .updateInstanceIdWeights(entry.getValue());
+        }
+        this.serviceId2InstanceIdWeightList = serviceId2InstanceIdWeightList;
+    }
+
     @Override
     public void onServiceUnregistered(int instanceId, int weight, Collection<Integer> serviceIds) {
         //copy on write
@@ -53,15 +53,31 @@ public class RoundRobinRouter implements ProviderRouter {
     @Override
     public void onAppRegistered(RSocketService rsocketService, int weight, Collection<ServiceLocator> services) {
         //copy on write
-        int instanceId = rsocketService.getId();
         FastListMultimap<Integer, WeightedRoundRobin> serviceId2WeightedRoundRobins = new FastListMultimap<>(this.serviceId2WeightedRoundRobins);
+        addWeightedRoundRobins(serviceId2WeightedRoundRobins, rsocketService.getId(), weight, services);
+        this.serviceId2WeightedRoundRobins = serviceId2WeightedRoundRobins;
+    }
+
+    @Override
+    public void onAppsRegistered(Collection<RSocketService> rsocketServices) {
+        //copy on write, 批量仅复制一次
+        FastListMultimap<Integer, WeightedRoundRobin> serviceId2WeightedRoundRobins = new FastListMultimap<>(this.serviceId2WeightedRoundRobins);
+        for (RSocketService rsocketService : rsocketServices) {
+            addWeightedRoundRobins(serviceId2WeightedRoundRobins, rsocketService.getId(),
+                    rsocketService.getAppMetadata().getWeight(), rsocketService.getPeerServices());
+        }
+        this.serviceId2WeightedRoundRobins = serviceId2WeightedRoundRobins;
+    }
 
+    /**
+     * 添加app instance服务对应的{@link WeightedRoundRobin}
+     */
+    private void addWeightedRoundRobins(FastListMultimap<Integer, WeightedRoundRobin> serviceId2WeightedRoundRobins,
+                                        int instanceId, int weight, Collection<ServiceLocator> services) {
         for (ServiceLocator serviceLocator : services) {
             Integer serviceId = serviceLocator.getId();
             serviceId2WeightedRoundRobins.put(serviceId, new WeightedRoundRobin(instanceId, weight));
         }
-
-        this.serviceId2WeightedRoundRobins = serviceId2WeightedRoundRobins;
     }
 
     @Override
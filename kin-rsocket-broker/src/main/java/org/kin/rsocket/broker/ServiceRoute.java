@@ -0,0 +1,78 @@
+package org.kin.rsocket.broker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.rsocket.frame.FrameType;
+import org.kin.rsocket.core.MetricsNames;
+import org.kin.rsocket.core.ServiceLocator;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * broker转发路由缓存项, 对应(serviceId, handlerId)
+ * <p>
+ * 缓存预先绑定的metrics counter及timer,
+ * 省去每次转发请求时查找服务信息, 拼接metrics name和构建tags的开销
+ * <p>
+ * 由{@link RSocketServiceRegistry}管理, 服务注册或注销时失效
+ *
+ * @author huangjianqin
+ * @date 2022/3/6
+ */
+final class ServiceRoute {
+    /** 需要统计的frame type */
+    private static final FrameType[] METRICS_FRAME_TYPES = {FrameType.REQUEST_RESPONSE, FrameType.REQUEST_FNF,
+            FrameType.REQUEST_STREAM, FrameType.REQUEST_CHANNEL};
+
+    /** key -> frame type, value -> 具体某一服务请求的数量counter */
+    private final Map<FrameType, Counter> frameType2Counter = new EnumMap<>(FrameType.class);
+    /** 某一服务(不区分group和version)所有请求的数量counter */
+    private final Counter serviceCounter;
+    /** broker接受upstream服务请求数量counter */
+    private final Counter requestCounter;
+    /** broker转发request response请求的耗时timer */
+    private final Timer requestResponseTimer;
+
+    ServiceRoute(ServiceLocator serviceLocator, String handler) {
+        String service = serviceLocator.getService();
+        String counterName = service.concat(MetricsNames.COUNT_SUFFIX);
+        for (FrameType frameType : METRICS_FRAME_TYPES) {
+            frameType2Counter.put(frameType, Metrics.counter(counterName,
+                    MetricsUtils.tags(serviceLocator.getGroup(), serviceLocator.getVersion(), handler, frameType.name())));
+        }
+        this.serviceCounter = Metrics.counter(counterName);
+        this.requestCounter = Metrics.counter(MetricsNames.RSOCKET_REQUEST_COUNT);
+
+        List<Tag> timerTags = MetricsUtils.tags(serviceLocator.getGroup(), serviceLocator.getVersion(), handler, FrameType.REQUEST_RESPONSE.name());
+        timerTags.add(Tag.of("service", service));
+        this.requestResponseTimer = Metrics.timer(MetricsNames.BROKER_FORWARD, timerTags);
+    }
+
+    /**
+     * 服务请求metrics
+     */
+    void metrics(FrameType frameType) {
+        Counter counter = frameType2Counter.get(frameType);
+        if (counter != null) {
+            counter.increment();
+        }
+        serviceCounter.increment();
+        requestCounter.increment();
+    }
+
+    /**
+     * 统计转发request response请求的耗时
+     */
+    <T> Mono<T> timed(Mono<T> request) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return request.doOnTerminate(() -> requestResponseTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+        });
+    }
+}
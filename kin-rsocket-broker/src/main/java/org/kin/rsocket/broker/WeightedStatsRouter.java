@@ -1,9 +1,8 @@
 package org.kin.rsocket.broker;
 
+import io.netty.util.collection.IntObjectHashMap;
 import io.rsocket.RSocket;
 import io.rsocket.loadbalance.WeightedStats;
-import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.impl.multimap.list.FastListMultimap;
 import org.jctools.maps.NonBlockingHashMap;
 import org.kin.rsocket.core.ServiceLocator;
 
@@ -14,6 +13,9 @@ import java.util.concurrent.ThreadLocalRandom;
 /**
  * 原理: 基于历史rsocket请求的响应时间来预测本次请求的响应时间, 然后根据预测的响应时间给requester分配权重, 最后选择最高权重的requester
  * 如果延迟足够好, 可能会一直路由到同一service Instance
+ * <p>
+ * 每个服务对应的instance及其累计权重预先计算成数组, 仅在app注册或注销时copy on write重建,
+ * 路由时按权重随机选出两个不同的instance(power of two choices), 再选择算法权重大的, 整个过程不会创建对象
  *
  * @author huangjianqin
  * @date 2022/1/15
@@ -21,135 +23,124 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class WeightedStatsRouter implements ProviderRouter {
     private static final double EXP_FACTOR = 4.0;
+    /** 按权重随机选出第二个instance时, 与第一个重复的最大重试次数 */
+    private static final int MAX_PICK_RETRIES = 3;
 
     /** 存储每个{@link RSocket} requester的状态信息, 用于计算其权重 */
     private final NonBlockingHashMap<RSocket, WeightedStats> statsMap = new NonBlockingHashMap<>();
-    /** key -> serviceId, value -> {@link WeightedInstance} list, copy on write更新 */
-    private FastListMultimap<Integer, WeightedInstance> serviceId2WeightedInstances = new FastListMultimap<>();
+    /** key -> serviceId, value -> {@link WeightedInstances}, copy on write更新 */
+    private IntObjectHashMap<WeightedInstances> serviceId2WeightedInstances = new IntObjectHashMap<>();
 
-    @SuppressWarnings("StatementWithEmptyBody")
     @Override
     public Integer route(int serviceId) {
-        MutableList<WeightedInstance> weightedInstances = serviceId2WeightedInstances.get(serviceId);
-        //有效的rsocket service instance
-        List<WeightedInstance> validInstances = new ArrayList<>();
-        //有效的rsocket service instance及对应的WeightedStats
-        Map<Integer, WeightedStats> validStatsMap = new HashMap<>();
-
-        for (WeightedInstance weightedInstance : weightedInstances) {
-            int instanceId = weightedInstance.instanceId;
-            WeightedStats stats = statsMap.get(weightedInstance.requester);
-            if (Objects.isNull(stats)) {
-                continue;
-            }
-            validInstances.add(weightedInstance);
-            validStatsMap.put(instanceId, stats);
+        WeightedInstances weightedInstances = serviceId2WeightedInstances.get(serviceId);
+        if (Objects.isNull(weightedInstances)) {
+            return null;
         }
 
-        int size = validInstances.size();
+        WeightedInstance[] instances = weightedInstances.instances;
+        int size = instances.length;
         switch (size) {
             case 0:
                 return null;
-            case 1:
-                //只有1个, 直接返回
-                return validInstances.get(0).instanceId;
+            case 1: {
+                //只有1个, 有效则直接返回
+                WeightedInstance wi = instances[0];
+                return Objects.nonNull(stats(wi)) ? wi.instanceId : null;
+            }
             case 2: {
                 //只有两个, 选择权重大的
-                WeightedInstance fwi = validInstances.get(0);
-                Integer fii = fwi.instanceId;
-                WeightedStats fws = validStatsMap.get(fii);
-
-                WeightedInstance swi = validInstances.get(0);
-                Integer sii = validInstances.get(1).instanceId;
-                WeightedStats sws = validStatsMap.get(sii);
-
-                double w1 = algorithmicWeight(fwi.requester, fws);
-                double w2 = algorithmicWeight(swi.requester, sws);
-                if (w1 < w2) {
-                    return sii;
-                } else {
-                    return fii;
+                Integer instanceId = choose(instances[0], instances[1]);
+                if (Objects.nonNull(instanceId)) {
+                    return instanceId;
                 }
+                //两个都不可用, 与多个instance一致, 返回有监控信息的instance, 由请求自身决定成败
+                return best(instances);
             }
             default: {
-                //大于两个
-                WeightedInstance fwi = null;
-                WeightedStats fws = null;
-
-                WeightedInstance swi = null;
-                WeightedStats sws = null;
-
-                //尝试随机取出两个有效的requester
-                List<WeightedInstance> validWeightedInstances = new ArrayList<>(weightedInstances);
-
-                //加权随机选出一个availability的requester
-                fwi = random(validWeightedInstances);
-                if (Objects.nonNull(fwi)) {
-                    fws = validStatsMap.get(fwi.instanceId);
+                //大于两个, 按权重随机选出两个不同的instance, 选择权重大的
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = weightedInstances.weightedRandomIndex(random);
+                int second = first;
+                for (int i = 0; i < MAX_PICK_RETRIES && second == first; i++) {
+                    second = weightedInstances.weightedRandomIndex(random);
                 }
-
-                //再次加权随机选出一个availability的requester
-                swi = random(validWeightedInstances);
-                if (Objects.nonNull(swi)) {
-                    sws = validStatsMap.get(swi.instanceId);
+                if (second == first) {
+                    //权重过于集中, 均匀随机选出另外一个
+                    second = (first + 1 + random.nextInt(size - 1)) % size;
                 }
 
-                if (fwi != null && swi != null) {
-                    //选择权重大
-                    double w1 = algorithmicWeight(fwi.requester, fws);
-                    double w2 = algorithmicWeight(swi.requester, sws);
-                    if (w1 < w2) {
-                        return swi.instanceId;
-                    } else {
-                        return fwi.instanceId;
-                    }
-                } else if (fwi != null) {
-                    return fwi.instanceId;
-                } else if (swi != null) {
-                    return swi.instanceId;
-                } else {
-                    return null;
+                Integer instanceId = choose(instances[first], instances[second]);
+                if (Objects.nonNull(instanceId)) {
+                    return instanceId;
                 }
+                //选出的两个都不可用, 则遍历寻找权重最大的
+                return best(instances);
             }
         }
     }
 
     /**
-     * 按权重随机一个有效的rsocket requester instance
+     * 获取instance对应的{@link WeightedStats}
      */
     @Nullable
-    private WeightedInstance random(List<WeightedInstance> weightedInstances) {
-        while (weightedInstances.size() > 0) {
-            WeightedInstance random = weightedRandom(weightedInstances);
-            if (Objects.isNull(random) || random.requester.availability() <= 0.0D) {
-                continue;
-            }
+    private WeightedStats stats(WeightedInstance weightedInstance) {
+        WeightedStats stats = weightedInstance.stats;
+        if (Objects.isNull(stats)) {
+            //注册时, 可能还没绑定监控信息
+            stats = statsMap.get(weightedInstance.requester);
+            weightedInstance.stats = stats;
+        }
+        return stats;
+    }
 
-            return random;
+    /**
+     * 选择算法权重大的instance
+     *
+     * @return null, 则表示两个instance都不可用
+     */
+    @Nullable
+    private Integer choose(WeightedInstance fwi, WeightedInstance swi) {
+        WeightedStats fws = stats(fwi);
+        WeightedStats sws = stats(swi);
+        if (Objects.isNull(fws) && Objects.isNull(sws)) {
+            return null;
         }
 
-        return null;
+        double w1 = algorithmicWeight(fwi.requester, fws);
+        double w2 = algorithmicWeight(swi.requester, sws);
+        if (w1 <= 0 && w2 <= 0) {
+            //都不可用, 则优先返回有监控信息的
+            if (Objects.isNull(fws)) {
+                return swi.instanceId;
+            }
+            if (Objects.isNull(sws)) {
+                return fwi.instanceId;
+            }
+            return null;
+        }
+        return w1 < w2 ? swi.instanceId : fwi.instanceId;
     }
 
     /**
-     * 按权重随机一个rsocket requester instance
+     * 遍历寻找算法权重最大的instance
      */
     @Nullable
-    private WeightedInstance weightedRandom(List<WeightedInstance> weightedInstances) {
-        int sumWeight = weightedInstances.stream().mapToInt(wi -> wi.weight).sum();
-        int random = ThreadLocalRandom.current().nextInt(sumWeight + 1);
-        int tempWeight = 0;
-        Iterator<WeightedInstance> iterator = weightedInstances.iterator();
-        while (iterator.hasNext()) {
-            WeightedInstance weightedInstance = iterator.next();
-            tempWeight += weightedInstance.weight;
-            if (tempWeight >= random) {
-                iterator.remove();
-                return weightedInstance;
+    private Integer best(WeightedInstance[] instances) {
+        WeightedInstance best = null;
+        double bestWeight = -1;
+        for (WeightedInstance wi : instances) {
+            WeightedStats stats = stats(wi);
+            if (Objects.isNull(stats)) {
+                continue;
+            }
+            double weight = algorithmicWeight(wi.requester, stats);
+            if (weight > bestWeight) {
+                best = wi;
+                bestWeight = weight;
             }
         }
-
-        return null;
+        return Objects.nonNull(best) ? best.instanceId : null;
     }
 
     /**
@@ -189,13 +180,47 @@ public class WeightedStatsRouter implements ProviderRouter {
 
     @Override
     public void onAppRegistered(RSocketService rsocketService, int weight, Collection<ServiceLocator> services) {
-        //copy on write
-        Integer instanceId = rsocketService.getId();
-        FastListMultimap<Integer, WeightedInstance> serviceId2WeightedInstances = new FastListMultimap<>(this.serviceId2WeightedInstances);
+        WeightedInstance weightedInstance = new WeightedInstance(rsocketService.getId(), weight, rsocketService.getRequester());
+        Map<Integer, List<WeightedInstance>> serviceId2NewInstances = new HashMap<>();
         for (ServiceLocator serviceLocator : services) {
-            int serviceId = serviceLocator.getId();
+            serviceId2NewInstances.computeIfAbsent(serviceLocator.getId(), k -> new ArrayList<>()).add(weightedInstance);
+        }
+        addWeightedInstances(serviceId2NewInstances);
+    }
 
-            serviceId2WeightedInstances.put(serviceId, new WeightedInstance(instanceId, weight, rsocketService.getRequester()));
+    @Override
+    public void onAppsRegistered(Collection<RSocketService> rsocketServices) {
+        //按serviceId合并, 批量仅复制一次
+        Map<Integer, List<WeightedInstance>> serviceId2NewInstances = new HashMap<>();
+        for (RSocketService rsocketService : rsocketServices) {
+            WeightedInstance weightedInstance = new WeightedInstance(rsocketService.getId(),
+                    rsocketService.getAppMetadata().getWeight(), rsocketService.getRequester());
+            for (ServiceLocator serviceLocator : rsocketService.getPeerServices()) {
+                serviceId2NewInstances.computeIfAbsent(serviceLocator.getId(), k -> new ArrayList<>()).add(weightedInstance);
+            }
+        }
+        addWeightedInstances(serviceId2NewInstances);
+    }
+
+    /**
+     * 添加服务对应的{@link WeightedInstance}, 并重建{@link WeightedInstances}
+     */
+    private void addWeightedInstances(Map<Integer, List<WeightedInstance>> serviceId2NewInstances) {
+        //copy on write
+        IntObjectHashMap<WeightedInstances> serviceId2WeightedInstances = new IntObjectHashMap<>(this.serviceId2WeightedInstances.size() + serviceId2NewInstances.size());
+        serviceId2WeightedInstances.putAll(this.serviceId2WeightedInstances);
+        for (Map.Entry<Integer, List<WeightedInstance>> entry : serviceId2NewInstances.entrySet()) {
+            int serviceId = entry.getKey();
+            List<WeightedInstance> newInstances = entry.getValue();
+
+            WeightedInstances old = serviceId2WeightedInstances.get(serviceId);
+            List<WeightedInstance> instances = new ArrayList<>((Objects.nonNull(old) ? old.instances.length : 0) + newInstances.size());
+            if (Objects.nonNull(old)) {
+                Collections.addAll(instances, old.instances);
+            }
+            instances.addAll(newInstances);
+
+            serviceId2WeightedInstances.put(serviceId, new WeightedInstances(instances));
         }
         this.serviceId2WeightedInstances = serviceId2WeightedInstances;
     }
@@ -203,26 +228,44 @@ public class WeightedStatsRouter implements ProviderRouter {
     @Override
     public void onServiceUnregistered(int instanceId, int weight, Collection<Integer> serviceIds) {
         //copy on write
-        FastListMultimap<Integer, WeightedInstance> serviceId2WeightedInstances = new FastListMultimap<>(this.serviceId2WeightedInstances);
+        IntObjectHashMap<WeightedInstances> serviceId2WeightedInstances = new IntObjectHashMap<>(this.serviceId2WeightedInstances.size());
+        serviceId2WeightedInstances.putAll(this.serviceId2WeightedInstances);
         for (Integer serviceId : serviceIds) {
-            MutableList<WeightedInstance> weightedInstances = serviceId2WeightedInstances.get(serviceId);
-            List<WeightedInstance> newWeightedInstances = new ArrayList<>();
+            WeightedInstances old = serviceId2WeightedInstances.get(serviceId);
+            if (Objects.isNull(old)) {
+                continue;
+            }
 
-            for (WeightedInstance weightedInstance : weightedInstances) {
+            List<WeightedInstance> instances = new ArrayList<>(old.instances.length);
+            for (WeightedInstance weightedInstance : old.instances) {
                 if (weightedInstance.instanceId == instanceId) {
                     continue;
                 }
 
-                newWeightedInstances.add(weightedInstance);
+                instances.add(weightedInstance);
+            }
+
+            if (instances.isEmpty()) {
+                serviceId2WeightedInstances.remove(serviceId);
+            } else {
+                serviceId2WeightedInstances.put(serviceId, new WeightedInstances(instances));
             }
-            serviceId2WeightedInstances.replaceValues(serviceId, newWeightedInstances);
         }
         this.serviceId2WeightedInstances = serviceId2WeightedInstances;
     }
 
     @Override
     public Collection<Integer> getAllInstanceIds(int serviceId) {
-        return serviceId2WeightedInstances.get(serviceId).collect(wi -> wi.instanceId).asUnmodifiable();
+        WeightedInstances weightedInstances = serviceId2WeightedInstances.get(serviceId);
+        if (Objects.isNull(weightedInstances)) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> instanceIds = new ArrayList<>(weightedInstances.instances.length);
+        for (WeightedInstance weightedInstance : weightedInstances.instances) {
+            instanceIds.add(weightedInstance.instanceId);
+        }
+        return Collections.unmodifiableList(instanceIds);
     }
 
     public void put(RSocket requester, WeightedStats weightedStats) {
@@ -233,17 +276,59 @@ public class WeightedStatsRouter implements ProviderRouter {
         statsMap.remove(requester);
     }
 
+    /**
+     * 某一服务的所有instance及其累计权重, 不可变
+     */
+    private static final class WeightedInstances {
+        /** 所有instance */
+        private final WeightedInstance[] instances;
+        /** 累计权重, 即cumulativeWeights[i] = sum(instances[0..i].weight) */
+        private final int[] cumulativeWeights;
+
+        WeightedInstances(List<WeightedInstance> instances) {
+            this.instances = instances.toArray(new WeightedInstance[0]);
+            this.cumulativeWeights = new int[this.instances.length];
+            int sum = 0;
+            for (int i = 0; i < this.instances.length; i++) {
+                sum += this.instances[i].weight;
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        /**
+         * @return 按权重随机选出的instance下标
+         */
+        int weightedRandomIndex(ThreadLocalRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            //二分查找第一个累计权重 > value的下标
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeights[mid] > value) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
     private static class WeightedInstance {
-        /** app instance id */
-        private final int instanceId;
+        /** app instance id, 预先装箱, 路由时直接返回 */
+        private final Integer instanceId;
         /** app 权重 */
         private final int weight;
         /** broker 2 service requester */
         private final RSocket requester;
+        /** requester监控信息, 首次路由时绑定 */
+        private volatile WeightedStats stats;
 
         public WeightedInstance(int instanceId, int weight, RSocket requester) {
             this.instanceId = instanceId;
-            this.weight = weight;
+            //至少为1, 保证累计权重递增
+            this.weight = Math.max(weight, 1);
             this.requester = requester;
         }
     }
@@ -1,8 +1,13 @@
 package org.kin.rsocket.broker.controller;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.PooledByteBufAllocator;
-import io.rsocket.util.DefaultPayload;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.util.ByteBufPayload;
 import org.kin.rsocket.auth.AuthenticationService;
 import org.kin.rsocket.auth.RSocketAppPrincipal;
 import org.kin.rsocket.broker.RSocketBrokerProperties;
@@ -20,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 
@@ -34,6 +40,20 @@ import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 public class RSocketApiController {
     /** json编码元数据 */
     private static final MessageMimeTypeMetadata JSON_ENCODING_METADATA = MessageMimeTypeMetadata.from(RSocketMimeType.JSON);
+    /** 返回json的http response headers */
+    private static final HttpHeaders JSON_HEADERS;
+    /** 缓存的路由元数据数量上限 */
+    private static final int MAX_ROUTES = 10000;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setCacheControl(CacheControl.noCache().getHeaderValue());
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /** key -> group, service, method, version, value -> 路由元数据, 避免每次请求都编码composite metadata */
+    private final Cache<ApiRouteKey, ApiRoute> routes = CacheBuilder.newBuilder().maximumSize(MAX_ROUTES).build();
 
     @Autowired
     private RSocketBrokerProperties rsocketBrokerProperties;
@@ -45,18 +65,19 @@ public class RSocketApiController {
     private AuthenticationService authenticationService;
 
     @RequestMapping(value = "/{service}/{method}", produces = {MediaType.APPLICATION_JSON_VALUE})
-    public Mono<ResponseEntity<String>> handle(@PathVariable("service") String service,
-                                               @PathVariable("method") String method,
-                                               @RequestParam(name = "group", required = false, defaultValue = "") String group,
-                                               @RequestParam(name = "version", required = false, defaultValue = "") String version,
-                                               @RequestBody(required = false) byte[] body,
-                                               @RequestHeader(name = "X-Endpoint", required = false, defaultValue = "") String endpoint,
-                                               @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token) {
+    public Mono<ResponseEntity<ByteBuf>> handle(@PathVariable("service") String service,
+                                                @PathVariable("method") String method,
+                                                @RequestParam(name = "group", required = false, defaultValue = "") String group,
+                                                @RequestParam(name = "version", required = false, defaultValue = "") String version,
+                                                @RequestBody(required = false) ByteBuf body,
+                                                @RequestHeader(name = "X-Endpoint", required = false, defaultValue = "") String endpoint,
+                                                @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token) {
+        ByteBuf bodyBuf = body == null ? EMPTY_BUFFER : body;
         try {
-            GSVRoutingMetadata routingMetadata = GSVRoutingMetadata.from(group, service, method, version);
+            ApiRoute route = route(group, service, method, version);
+            GSVRoutingMetadata routingMetadata = route.routingMetadata;
             int serviceId = routingMetadata.serviceId();
 
-            ByteBuf bodyBuf = body == null ? EMPTY_BUFFER : PooledByteBufAllocator.DEFAULT.buffer(body.length).writeBytes(body);
             RSocketService rsocketService;
             if (endpoint.startsWith(Endpoints.INSTANCE_ID)) {
                 //存在endpoint
@@ -69,32 +90,97 @@ public class RSocketApiController {
                 if (rsocketBrokerProperties.isAuth()) {
                     RSocketAppPrincipal principal = authenticationService.auth(token);
                     if (principal == null || !serviceMeshInspector.isAllowed(principal, serviceId, rsocketService.getPrincipal())) {
+                        ReferenceCountUtil.safeRelease(bodyBuf);
                         return Mono.just(error(String.format("Service request not allowed '%s'", routingMetadata.gsv())));
                     }
                 }
-                RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(routingMetadata, JSON_ENCODING_METADATA);
-                return rsocketService.requestResponse(DefaultPayload.create(bodyBuf, compositeMetadata.getContent()))
+                //body及composite metadata都不复制
+                return rsocketService.requestResponse(ByteBufPayload.create(bodyBuf, Unpooled.wrappedBuffer(route.compositeMetadataBytes)))
                         .map(payload -> {
-                            HttpHeaders headers = new HttpHeaders();
-                            headers.setContentType(MediaType.APPLICATION_JSON);
-                            headers.setCacheControl(CacheControl.noCache().getHeaderValue());
-                            return new ResponseEntity<>(payload.getDataUtf8(), headers, HttpStatus.OK);
+                            ByteBuf data = payload.data().retain();
+                            ReferenceCountUtil.safeRelease(payload);
+                            return new ResponseEntity<>(data, JSON_HEADERS, HttpStatus.OK);
                         });
             }
+            ReferenceCountUtil.safeRelease(bodyBuf);
             return Mono.just(error(String.format("service not found, '%s'", routingMetadata.gsv())));
         } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(bodyBuf);
             return Mono.just(error(e.getMessage()));
         }
     }
 
+    /**
+     * 获取缓存的路由元数据, 没有则创建
+     */
+    private ApiRoute route(String group, String service, String method, String version) throws ExecutionException {
+        return routes.get(new ApiRouteKey(group, service, method, version), () -> {
+            GSVRoutingMetadata routingMetadata = GSVRoutingMetadata.from(group, service, method, version);
+            ByteBuf compositeMetadataBytes = RSocketCompositeMetadata.from(routingMetadata, JSON_ENCODING_METADATA).getContent();
+            try {
+                return new ApiRoute(routingMetadata, ByteBufUtil.getBytes(compositeMetadataBytes));
+            } finally {
+                ReferenceCountUtil.safeRelease(compositeMetadataBytes);
+            }
+        });
+    }
+
     /**
      * 请求异常统一处理
      */
-    private ResponseEntity<String> error(String errorText) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setCacheControl(CacheControl.noCache().getHeaderValue());
-        return new ResponseEntity<>(errorText, headers, HttpStatus.BAD_REQUEST);
+    private ResponseEntity<ByteBuf> error(String errorText) {
+        return new ResponseEntity<>(Unpooled.copiedBuffer(errorText, CharsetUtil.UTF_8), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 路由元数据缓存key, 字段分开比较, 避免拼接字符串后不同的group, service, method, version组合产生相同的key
+     */
+    private static final class ApiRouteKey {
+        private final String group;
+        private final String service;
+        private final String method;
+        private final String version;
+
+        private ApiRouteKey(String group, String service, String method, String version) {
+            this.group = group;
+            this.service = service;
+            this.method = method;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ApiRouteKey)) {
+                return false;
+            }
+            ApiRouteKey that = (ApiRouteKey) o;
+            return group.equals(that.group) && service.equals(that.service) &&
+                    method.equals(that.method) && version.equals(that.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(group, service, method, version);
+        }
     }
 
+    /**
+     * 路由元数据
+     */
+    private static final class ApiRoute {
+        /** 路由信息, 用于路由及校验 */
+        private final GSVRoutingMetadata routingMetadata;
+        /** 请求composite metadata bytes, 每次请求直接wrap, 无需复制 */
+        private final byte[] compositeMetadataBytes;
+
+        private ApiRoute(GSVRoutingMetadata routingMetadata, byte[] compositeMetadataBytes) {
+            this.routingMetadata = routingMetadata;
+            this.compositeMetadataBytes = compositeMetadataBytes;
+        }
+    }
 }
@@ -0,0 +1,255 @@
+package org.kin.rsocket.broker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+public class PersistentHashMapTest {
+    @Test
+    public void putReplaceRemove() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> map = empty.put("a", 1).put("b", 2);
+        assertEquals(2, map.size());
+        assertEquals(1, map.get("a"));
+        assertEquals(2, map.get("b"));
+        assertNull(map.get("c"));
+        assertEquals(3, map.getOrDefault("c", 3));
+        assertTrue(map.containsKey("a"));
+        assertFalse(map.containsKey("c"));
+
+        //replace
+        PersistentHashMap<String, Integer> replaced = map.put("a", 10);
+        assertEquals(2, replaced.size());
+        assertEquals(10, replaced.get("a"));
+        assertEquals(1, map.get("a"));
+        //相同value, 返回自身
+        Integer value = replaced.get("a");
+        assertSame(replaced, replaced.put("a", value));
+
+        //remove
+        PersistentHashMap<String, Integer> removed = replaced.remove("a");
+        assertEquals(1, removed.size());
+        assertNull(removed.get("a"));
+        assertEquals(2, removed.get("b"));
+        assertEquals(10, replaced.get("a"));
+        //不存在的key, 返回自身
+        assertSame(removed, removed.remove("c"));
+
+        PersistentHashMap<String, Integer> none = removed.remove("b");
+        assertTrue(none.isEmpty());
+        assertEquals(0, none.size());
+        assertTrue(empty.isEmpty());
+    }
+
+    @Test
+    public void fullHashCollision() {
+        HashKey k1 = new HashKey(42, "k1");
+        HashKey k2 = new HashKey(42, "k2");
+        HashKey k3 = new HashKey(42, "k3");
+        HashKey other = new HashKey(43, "other");
+
+        PersistentHashMap<HashKey, String> map = PersistentHashMap.<HashKey, String>empty()
+                .put(k1, "v1").put(k2, "v2").put(k3, "v3").put(other, "other");
+        assertEquals(4, map.size());
+        assertEquals("v1", map.get(k1));
+        assertEquals("v2", map.get(k2));
+        assertEquals("v3", map.get(k3));
+        assertEquals("other", map.get(other));
+        assertNull(map.get(new HashKey(42, "k4")));
+
+        //collision节点内replace
+        PersistentHashMap<HashKey, String> replaced = map.put(k2, "v2'");
+        assertEquals(4, replaced.size());
+        assertEquals("v2'", replaced.get(k2));
+        assertEquals("v2", map.get(k2));
+
+        //collision节点仅剩一个entry时, 压缩成leaf
+        PersistentHashMap<HashKey, String> removed = map.remove(k1).remove(k3);
+        assertEquals(2, removed.size());
+        assertNull(removed.get(k1));
+        assertNull(removed.get(k3));
+        assertEquals("v2", removed.get(k2));
+        assertEquals("other", removed.get(other));
+        assertEquals(new HashSet<>(Arrays.asList(k2, other)), new HashSet<>(removed.keySet()));
+
+        //压缩后仍可再次产生collision
+        PersistentHashMap<HashKey, String> again = removed.put(k1, "v1");
+        assertEquals(3, again.size());
+        assertEquals("v1", again.get(k1));
+        assertEquals("v2", again.get(k2));
+
+        PersistentHashMap<HashKey, String> none = removed.remove(k2).remove(other);
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void deepLevelRemove() {
+        //扰动后hash仅最高位不同, 需要用到最深一层才能区分
+        HashKey k1 = HashKey.ofSpreadHash(0, "k1");
+        HashKey k2 = HashKey.ofSpreadHash(0x80000000, "k2");
+        HashKey k3 = HashKey.ofSpreadHash(0x40000000, "k3");
+        //与k1完全hash冲突
+        HashKey k4 = HashKey.ofSpreadHash(0, "k4");
+        HashKey shallow = HashKey.ofSpreadHash(1, "shallow");
+
+        PersistentHashMap<HashKey, String> map = PersistentHashMap.<HashKey, String>empty()
+                .put(k1, "v1").put(k2, "v2").put(k3, "v3").put(k4, "v4").put(shallow, "shallow");
+        assertEquals(5, map.size());
+        for (HashKey key : Arrays.asList(k1, k2, k3, k4, shallow)) {
+            assertTrue(map.containsKey(key));
+        }
+
+        PersistentHashMap<HashKey, String> removed = map.remove(k2);
+        assertEquals(4, removed.size());
+        assertNull(removed.get(k2));
+        assertEquals("v1", removed.get(k1));
+        assertEquals("v3", removed.get(k3));
+        assertEquals("v4", removed.get(k4));
+
+        removed = removed.remove(k1).remove(k3);
+        assertEquals(2, removed.size());
+        assertEquals("v4", removed.get(k4));
+        assertEquals("shallow", removed.get(shallow));
+        assertEquals(new HashSet<>(Arrays.asList(k4, shallow)), new HashSet<>(removed.keySet()));
+
+        //原map不受影响
+        assertEquals(5, map.size());
+        assertEquals("v2", map.get(k2));
+    }
+
+    @Test
+    public void iterationAfterMixedOperations() {
+        Random random = new Random(20220313);
+        Map<HashKey, Integer> expected = new HashMap<>();
+        PersistentHashMap<HashKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            //hash范围较小, 产生大量部分冲突及完全冲突
+            HashKey key = new HashKey(random.nextInt(512) * 0x01010101, "k" + random.nextInt(2048));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertMapEquals(expected, map);
+
+        //全部移除
+        for (HashKey key : new ArrayList<>(expected.keySet())) {
+            map = map.remove(key);
+        }
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+    }
+
+    @Test
+    public void iterationOrder() {
+        PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.put(i, String.valueOf(i));
+        }
+
+        List<Integer> forEachKeys = new ArrayList<>();
+        List<String> forEachValues = new ArrayList<>();
+        map.forEach((k, v) -> {
+            forEachKeys.add(k);
+            forEachValues.add(v);
+        });
+        //keySet, values与forEach遍历顺序一致
+        assertEquals(forEachKeys, new ArrayList<>(map.keySet()));
+        assertEquals(forEachValues, new ArrayList<>(map.values()));
+        //同一实例多次遍历顺序一致
+        assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(map.keySet()));
+
+        assertEquals(1000, forEachKeys.size());
+        assertEquals(1000, new HashSet<>(forEachKeys).size());
+        for (int i = 0; i < forEachKeys.size(); i++) {
+            assertEquals(String.valueOf(forEachKeys.get(i)), forEachValues.get(i));
+        }
+
+        Iterator<Integer> iterator = map.keySet().iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    /**
+     * 校验{@link PersistentHashMap}与{@link Map}内容一致
+     */
+    private static <K, V> void assertMapEquals(Map<K, V> expected, PersistentHashMap<K, V> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.isEmpty(), map.isEmpty());
+        for (Map.Entry<K, V> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        List<K> keys = new ArrayList<>(map.keySet());
+        assertEquals(expected.size(), keys.size());
+        assertEquals(expected.keySet(), new HashSet<>(keys));
+        assertEquals(expected.size(), map.keySet().size());
+
+        List<V> values = new ArrayList<>(map.values());
+        assertEquals(expected.size(), values.size());
+        assertEquals(expected.size(), map.values().size());
+
+        Map<K, V> forEachEntries = new HashMap<>();
+        map.forEach((k, v) -> assertNull(forEachEntries.put(k, v)));
+        assertEquals(expected, forEachEntries);
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 指定hashCode的key
+     */
+    private static final class HashKey {
+        private final int hashCode;
+        private final String id;
+
+        HashKey(int hashCode, String id) {
+            this.hashCode = hashCode;
+            this.id = id;
+        }
+
+        /**
+         * @param spreadHash 经{@link PersistentHashMap}扰动后的hash
+         */
+        static HashKey ofSpreadHash(int spreadHash, String id) {
+            //扰动为h ^ (h >>> 16), 高16位不变, 故可逆
+            return new HashKey((spreadHash & 0xFFFF0000) | ((spreadHash ^ (spreadHash >>> 16)) & 0xFFFF), id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HashKey)) {
+                return false;
+            }
+            HashKey hashKey = (HashKey) o;
+            return hashCode == hashKey.hashCode && id.equals(hashKey.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return id + "@" + Integer.toHexString(hashCode);
+        }
+    }
+}
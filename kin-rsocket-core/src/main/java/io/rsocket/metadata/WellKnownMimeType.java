@@ -80,6 +80,7 @@ public enum WellKnownMimeType {
     MESSAGE_RSOCKET_SERVICE_REGISTRY("message/x.rsocket.service.registry.v0+json", (byte) 0x54),
     MESSAGE_RSOCKET_MESSAGE_TAGS("message/x.rsocket.message.tags", (byte) 0x57),
     MESSAGE_RSOCKET_MESSAGE_ORIGIN("message/x.rsocket.message.origin", (byte) 0x58),
+    MESSAGE_RSOCKET_BATCH("message/x.rsocket.batch.v0", (byte) 0x59),
 
     // ... reserved for future use ...
     MESSAGE_RSOCKET_MIMETYPE("message/x.rsocket.mime-type.v0", (byte) 0x7A),
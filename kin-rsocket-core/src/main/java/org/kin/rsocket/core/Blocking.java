@@ -0,0 +1,26 @@
+package org.kin.rsocket.core;
+
+import java.lang.annotation.*;
+
+/**
+ * 标识rsocket service方法是阻塞的(比如jdbc, 同步rpc调用等), 可用于rsocket service接口, 实现类或者具体方法
+ * <p>
+ * 标识后, responder会在{@link BlockingServiceExecutor}上调用该服务方法, 而不是在netty event loop上直接调用,
+ * 避免慢调用阻塞同一event loop上所有连接的请求
+ * <pre class="code">
+ * &#64;Blocking
+ * &#64;RSocketService(UserService.class)
+ * public class UserServiceImpl implements UserService {
+ *     ......
+ * }
+ * </pre>
+ *
+ * @author huangjianqin
+ * @date 2022/3/9
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Blocking {
+}
@@ -0,0 +1,60 @@
+package org.kin.rsocket.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.kin.framework.utils.SysUtils;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 调用{@link Blocking}服务方法的线程池, 线程数和等待队列均有上限
+ * <p>
+ * 等待队列满时拒绝执行, 请求直接返回{@link RejectedExecutionException}, 而不是无限堆积.
+ * 可通过system property调整:
+ * kin.rsocket.blocking.threads: 线程数, 默认cpu核心数 * 10
+ * kin.rsocket.blocking.queue: 等待队列长度, 默认10000
+ *
+ * @author huangjianqin
+ * @date 2022/3/9
+ */
+public final class BlockingServiceExecutor {
+    public static final BlockingServiceExecutor INSTANCE = new BlockingServiceExecutor();
+
+    /** 线程池 */
+    private final ThreadPoolExecutor executor;
+    /** 基于{@link #executor}的reactor scheduler */
+    private final Scheduler scheduler;
+
+    private BlockingServiceExecutor() {
+        int threads = Integer.getInteger("kin.rsocket.blocking.threads", SysUtils.CPU_NUM * 10);
+        int queueSize = Integer.getInteger("kin.rsocket.blocking.queue", 10000);
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "RSocketBlockingService-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        Counter rejectedCounter = Metrics.counter(MetricsNames.RSOCKET_BLOCKING_REJECTED_COUNT);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), threadFactory,
+                (r, executor) -> {
+                    rejectedCounter.increment();
+                    throw new RejectedExecutionException(String.format("blocking service executor is busy, %d tasks queued", executor.getQueue().size()));
+                });
+        //空闲时回收线程
+        this.executor.allowCoreThreadTimeOut(true);
+        this.scheduler = Schedulers.fromExecutorService(executor, "RSocketBlockingService");
+
+        Metrics.gauge(MetricsNames.RSOCKET_BLOCKING_QUEUE_NUM, executor, e -> e.getQueue().size());
+        Metrics.gauge(MetricsNames.RSOCKET_BLOCKING_ACTIVE_NUM, executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    //getter
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+}
@@ -0,0 +1,35 @@
+package org.kin.rsocket.core;
+
+import java.lang.annotation.*;
+
+/**
+ * 标识rsocket service接口方法开启fire and forget批量发送, 仅对fire and forget方法(返回void或者Mono&lt;Void&gt;)生效
+ * <p>
+ * 开启后, requester会累积调用, 达到{@link #maxSize()}或者首个调用已等待{@link #maxDelayMicros()}后, 合并成一个frame发送,
+ * responder收到后再逐个调用服务方法. 适用于上报类等高频调用, 减少frame数量及重复的metadata.
+ * 返回Mono&lt;Void&gt;时, 仅代表调用已进入批量发送队列.
+ * 批量frame使用本项目扩展的batch mime type, 旧版本responder无法识别, 故需先升级所有responder才能开启
+ * <pre class="code">
+ * public interface MetricsIngestService {
+ *     &#64;FireAndForgetBatch(maxSize = 200, maxDelayMicros = 2000)
+ *     void report(Metric metric);
+ * }
+ * </pre>
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface FireAndForgetBatch {
+    /**
+     * 单个batch最多包含的调用数
+     */
+    int maxSize() default 100;
+
+    /**
+     * 首个调用最长等待时间(微秒)
+     */
+    long maxDelayMicros() default 1000;
+}
@@ -0,0 +1,33 @@
+package org.kin.rsocket.core;
+
+import java.lang.annotation.*;
+
+/**
+ * 标识rsocket service接口方法开启request hedging, 可用于rsocket service接口或者具体方法, 仅对request response方法生效
+ * <p>
+ * 开启后, requester在请求超过指定延迟仍未响应时, 再发送一次相同请求, 取先响应的结果, 并取消另外一个请求,
+ * 用于降低读接口的长尾延迟. 因为同一请求可能被处理两次, 故仅适用于幂等方法
+ * <pre class="code">
+ * public interface UserService {
+ *     &#64;Hedging
+ *     Mono&lt;User&gt; findById(Integer id);
+ * }
+ * </pre>
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Hedging {
+    /**
+     * 固定延迟(毫秒), 大于0时, 忽略{@link #percentile()}
+     */
+    int delay() default 0;
+
+    /**
+     * 延迟取该方法历史请求耗时的分位数
+     */
+    double percentile() default 0.95;
+}
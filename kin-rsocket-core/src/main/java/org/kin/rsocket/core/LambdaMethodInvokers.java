@@ -0,0 +1,190 @@
+package org.kin.rsocket.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 基于{@link LambdaMetafactory}为服务方法生成调用类, 服务实例作为receiver直接绑定在生成的lambda实例上
+ * <p>
+ * 生成的lambda内部直接invokeinterface/invokevirtual服务方法, 不经过反射, 也不需要将参数封装成Object[], JIT可以内联.
+ * 仅支持public类的public方法, 参数数量不超过2, 且服务接口, 参数及返回值类型对本类的classloader可见,
+ * 其余情况返回null, 由调用方回退到{@link org.kin.framework.proxy.ProxyInvoker}
+ *
+ * @author huangjianqin
+ * @date 2022/3/10
+ */
+final class LambdaMethodInvokers {
+    private static final Logger log = LoggerFactory.getLogger(LambdaMethodInvokers.class);
+    /** 拥有本类private权限的lookup, {@link LambdaMetafactory}要求 */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /** 生成的lambda方法名 */
+    private static final String INVOKE = "invoke";
+
+    private LambdaMethodInvokers() {
+    }
+
+    /** 无参服务方法 */
+    @FunctionalInterface
+    interface Invoker0 {
+        Object invoke() throws Exception;
+    }
+
+    /** 1个参数服务方法 */
+    @FunctionalInterface
+    interface Invoker1 {
+        Object invoke(Object arg0) throws Exception;
+    }
+
+    /** 2个参数服务方法 */
+    @FunctionalInterface
+    interface Invoker2 {
+        Object invoke(Object arg0, Object arg1) throws Exception;
+    }
+
+    /** 无参且无返回值服务方法, {@link LambdaMetafactory}不支持void适配成Object */
+    @FunctionalInterface
+    interface VoidInvoker0 {
+        void invoke() throws Exception;
+    }
+
+    /** 1个参数且无返回值服务方法 */
+    @FunctionalInterface
+    interface VoidInvoker1 {
+        void invoke(Object arg0) throws Exception;
+    }
+
+    /** 2个参数且无返回值服务方法 */
+    @FunctionalInterface
+    interface VoidInvoker2 {
+        void invoke(Object arg0, Object arg1) throws Exception;
+    }
+
+    /**
+     * @return 无参服务方法调用类, 不支持则返回null
+     */
+    static Invoker0 invoker0(Method method, Object provider) {
+        if (method.getParameterCount() != 0) {
+            return null;
+        }
+        if (method.getReturnType() == void.class) {
+            VoidInvoker0 invoker = create(method, provider, VoidInvoker0.class);
+            if (invoker == null) {
+                return null;
+            }
+            return () -> {
+                invoker.invoke();
+                return null;
+            };
+        }
+        return create(method, provider, Invoker0.class);
+    }
+
+    /**
+     * @return 1个参数服务方法调用类, 不支持则返回null
+     */
+    static Invoker1 invoker1(Method method, Object provider) {
+        if (method.getParameterCount() != 1) {
+            return null;
+        }
+        if (method.getReturnType() == void.class) {
+            VoidInvoker1 invoker = create(method, provider, VoidInvoker1.class);
+            if (invoker == null) {
+                return null;
+            }
+            return arg0 -> {
+                invoker.invoke(arg0);
+                return null;
+            };
+        }
+        return create(method, provider, Invoker1.class);
+    }
+
+    /**
+     * @return 2个参数服务方法调用类, 不支持则返回null
+     */
+    static Invoker2 invoker2(Method method, Object provider) {
+        if (method.getParameterCount() != 2) {
+            return null;
+        }
+        if (method.getReturnType() == void.class) {
+            VoidInvoker2 invoker = create(method, provider, VoidInvoker2.class);
+            if (invoker == null) {
+                return null;
+            }
+            return (arg0, arg1) -> {
+                invoker.invoke(arg0, arg1);
+                return null;
+            };
+        }
+        return create(method, provider, Invoker2.class);
+    }
+
+    /**
+     * 生成服务方法调用类
+     *
+     * @param invokerClass 函数式接口, 其唯一方法为{@link #INVOKE}
+     * @return 服务方法调用类, 不支持则返回null
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T create(Method method, Object provider, Class<T> invokerClass) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!Modifier.isPublic(declaringClass.getModifiers()) || !Modifier.isPublic(method.getModifiers()) ||
+                Modifier.isStatic(method.getModifiers()) || !declaringClass.isInstance(provider)) {
+            return null;
+        }
+        if (!isVisible(declaringClass) || !isVisible(method.getReturnType())) {
+            return null;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return null;
+            }
+        }
+
+        try {
+            MethodHandle implMethod = LOOKUP.unreflect(method);
+            //lambda方法签名, 参数及返回值都是Object
+            int paramCount = method.getParameterCount();
+            Class<?> returnType = method.getReturnType() == void.class ? void.class : Object.class;
+            MethodType samMethodType = MethodType.genericMethodType(paramCount).changeReturnType(returnType);
+            //服务方法签名, 基础类型需装箱, 由lambda负责转换
+            MethodType instantiatedMethodType = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).wrap();
+            if (method.getReturnType() == void.class) {
+                instantiatedMethodType = instantiatedMethodType.changeReturnType(void.class);
+            }
+
+            CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, INVOKE,
+                    MethodType.methodType(invokerClass, declaringClass),
+                    samMethodType, implMethod, instantiatedMethodType);
+            return (T) callSite.getTarget().invoke(provider);
+        } catch (Throwable e) {
+            log.warn("generate invoker for method '{}' fail, fallback to proxy invoker", method, e);
+            return null;
+        }
+    }
+
+    /**
+     * 生成的lambda类以{@link #LOOKUP}定义, 即通过本类的classloader解析服务方法涉及的类.
+     * 服务类由子classloader(比如spring boot fat jar)加载时, 首次调用lambda才会抛出{@link NoClassDefFoundError},
+     * 无法在生成时发现并回退到proxy invoker, 故生成前需检查
+     *
+     * @return {@code type}是否对本类的classloader可见
+     */
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, LambdaMethodInvokers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
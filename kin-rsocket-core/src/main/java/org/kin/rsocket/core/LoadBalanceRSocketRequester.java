@@ -8,6 +8,7 @@ import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.core.RSocketConnector;
 import io.rsocket.exceptions.ConnectionErrorException;
+import io.rsocket.exceptions.RejectedException;
 import io.rsocket.frame.decoder.PayloadDecoder;
 import io.rsocket.loadbalance.WeightedStatsRequestInterceptor;
 import io.rsocket.plugins.DuplexConnectionInterceptor;
@@ -25,6 +26,7 @@ import org.kin.rsocket.core.health.HealthCheck;
 import org.kin.rsocket.core.metadata.GSVRoutingMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 import org.kin.rsocket.core.transport.UriTransportRegistry;
+import org.kin.rsocket.core.upstream.AdaptiveConcurrencyLimiter;
 import org.kin.rsocket.core.upstream.loadbalance.UpstreamLoadBalance;
 import org.kin.rsocket.core.upstream.loadbalance.WeightedStatsUpstreamLoadBalance;
 import org.kin.rsocket.core.utils.Symbols;
@@ -34,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
@@ -44,7 +47,7 @@ import java.net.ConnectException;
 import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -81,6 +84,12 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
     private volatile Collection<String> lastRefreshRSocketUris = Collections.emptyList();
     /** 有效的rsocket连接, 一写, 多读, copy-on-write */
     private volatile Map<String, RSocket> activeRSockets = Collections.emptyMap();
+    /** {@link #activeRSockets}的不可变快照, 仅在连接建立或断开时重建, 每次请求直接交给{@link #loadBalance}选择, 无需复制 */
+    private volatile List<RSocket> activeRSocketList = Collections.emptyList();
+    /** 是否开启每个upstream rsocket的自适应并发度限制 */
+    private final boolean concurrencyLimitEnabled;
+    /** key -> upstream rsocket, value -> 该rsocket的自适应并发度限制, copy-on-write, 与{@link #activeRSockets}同步更新 */
+    private volatile Map<RSocket, AdaptiveConcurrencyLimiter> limiters = Collections.emptyMap();
     /** unhealthy uris */
     private final Set<String> unhealthyUris = new NonBlockingHashSet<>();
     /** 上一次health check时间 */
@@ -97,8 +106,13 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
     private Disposable healthCheckDisposable;
     /** unhealth uris check disposable */
     private Disposable unhealthUrisCheckDisposable;
-    /** 首次创建时, 用于等待连接建立成功, 然后释放掉 */
-    private volatile CountDownLatch latch = new CountDownLatch(1);
+    /**
+     * 首次连接建立成功时complete, 在此之前的请求延迟到其complete后再选择rsocket, 而不是阻塞订阅线程
+     * 首次连接建立前dispose, 则error, 避免等待中的请求永远挂起
+     */
+    private final Sinks.Empty<Void> firstConnectSink = Sinks.empty();
+    /** 首次连接是否已建立成功 */
+    private volatile boolean firstConnected;
 
     public LoadBalanceRSocketRequester(String serviceGsv,
                                        Flux<Collection<String>> urisFactory,
@@ -116,6 +130,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         this.serviceGsv = serviceGsv;
         this.loadBalance = tryLoadUpstreamLoadBalance(loadBalanceStrategy);
         this.requesterSupport = requesterSupport;
+        this.concurrencyLimitEnabled = requesterSupport.adaptiveConcurrencyLimit();
         if (ServiceLocator.gsv(Symbols.BROKER).equals(serviceGsv) ||
                 !LocalRSocketServiceRegistry.exposedServices().isEmpty()) {
             //broker 即 provider
@@ -197,7 +212,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
                         }
                     }
 
-                    this.activeRSockets = newActiveRSockets;
+                    updateActiveRSockets(newActiveRSockets);
 
                     //close所有被移除的rsockets
                     if (!staleRSockets.isEmpty()) {
@@ -217,38 +232,141 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
                         onRSocketConnected(entry.getKey(), entry.getValue());
                     }
 
-                    if (Objects.nonNull(latch)) {
-                        latch.countDown();
-                        //释放掉
-                        latch = null;
+                    if (!firstConnected) {
+                        firstConnected = true;
+                        firstConnectSink.tryEmitEmpty();
                     }
                 });
     }
 
     /**
-     * 等待首次连接建立成功
+     * 更新有效的rsocket连接, 并重建其快照
      */
-    private void awaitFirstConnect() {
-        if (Objects.nonNull(latch)) {
-            try {
-                latch.await();
-            } catch (InterruptedException e) {
-                //ignore
+    private void updateActiveRSockets(Map<String, RSocket> activeRSockets) {
+        if (concurrencyLimitEnabled) {
+            updateLimiters(activeRSockets);
+        }
+        this.activeRSockets = activeRSockets;
+        this.activeRSocketList = Collections.unmodifiableList(Arrays.asList(activeRSockets.values().toArray(new RSocket[0])));
+    }
+
+    /**
+     * 关闭被移除rsocket的并发度限制, 并为新增的rsocket创建并发度限制
+     * 必须先关闭再创建, 否则同一uri重连时, 新并发度限制会复用旧并发度限制的meters, 而旧并发度限制关闭时会将其移除
+     */
+    private void updateLimiters(Map<String, RSocket> activeRSockets) {
+        Map<RSocket, AdaptiveConcurrencyLimiter> oldLimiters = this.limiters;
+        Set<RSocket> activeRSocketSet = Collections.newSetFromMap(new IdentityHashMap<>(activeRSockets.size()));
+        activeRSocketSet.addAll(activeRSockets.values());
+        for (Map.Entry<RSocket, AdaptiveConcurrencyLimiter> entry : oldLimiters.entrySet()) {
+            if (!activeRSocketSet.contains(entry.getKey())) {
+                entry.getValue().close();
             }
         }
+
+        Map<RSocket, AdaptiveConcurrencyLimiter> newLimiters = new IdentityHashMap<>(activeRSockets.size());
+        for (Map.Entry<String, RSocket> entry : activeRSockets.entrySet()) {
+            RSocket rsocket = entry.getValue();
+            AdaptiveConcurrencyLimiter limiter = oldLimiters.get(rsocket);
+            if (Objects.isNull(limiter)) {
+                limiter = new AdaptiveConcurrencyLimiter(serviceGsv, entry.getKey());
+            }
+            newLimiters.put(rsocket, limiter);
+        }
+        this.limiters = newLimiters;
+    }
+
+    /**
+     * 首次连接建立成功后才继续执行{@code next}, 首次连接已建立则直接执行
+     */
+    private <T> Mono<T> afterFirstConnect(Mono<T> next) {
+        if (firstConnected) {
+            return next;
+        }
+        return firstConnectSink.asMono().then(next);
     }
 
     /**
      * 根据{@link LoadBalanceRSocketRequester#loadBalance}选择一个有效的RSocket
      */
     private Mono<RSocket> next(ByteBuf paramBytes) {
-        return Mono.fromSupplier(() -> {
-            awaitFirstConnect();
-            RSocket selected = loadBalance.select(serviceGsv.hashCode(), paramBytes, new ArrayList<>(activeRSockets.values()));
+        return afterFirstConnect(Mono.fromSupplier(() -> {
+            List<RSocket> rsockets = activeRSocketList;
+            RSocket selected = loadBalance.select(serviceGsv.hashCode(), paramBytes, rsockets);
             if (Objects.isNull(selected)) {
                 throw new NoAvailableConnectionException(serviceGsv);
             }
+            if (concurrencyLimitEnabled) {
+                selected = selectWithCapacity(selected, rsockets);
+            }
             return selected;
+        }));
+    }
+
+    /**
+     * 开启自适应并发度限制时, 如果负载均衡选中的rsocket在途请求已达上限, 则转而选择其他仍有空闲并发度的rsocket
+     * 所有rsocket均达上限, 则快速失败
+     */
+    private RSocket selectWithCapacity(RSocket selected, List<RSocket> rsockets) {
+        Map<RSocket, AdaptiveConcurrencyLimiter> limiters = this.limiters;
+        AdaptiveConcurrencyLimiter limiter = limiters.get(selected);
+        if (Objects.isNull(limiter) || limiter.hasCapacity()) {
+            return selected;
+        }
+
+        int size = rsockets.size();
+        //随机起点, 避免所有请求都转移到同一rsocket
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            RSocket rsocket = rsockets.get((start + i) % size);
+            limiter = limiters.get(rsocket);
+            if (Objects.isNull(limiter) || limiter.hasCapacity()) {
+                return rsocket;
+            }
+        }
+        throw new RejectedException(String.format("all upstream rsockets of '%s' reach concurrency limit", serviceGsv));
+    }
+
+    /**
+     * 开启自适应并发度限制时, 发送请求前占用并发度, 请求结束后释放, 并以请求rtt调整limit
+     *
+     * @param payload 占用失败时需释放
+     */
+    private <T> Mono<T> limit(RSocket rsocket, Mono<T> request, Payload payload) {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimitEnabled ? limiters.get(rsocket) : null;
+        if (Objects.isNull(limiter)) {
+            return request;
+        }
+        return Mono.defer(() -> {
+            if (!limiter.tryAcquire()) {
+                ReferenceCountUtil.safeRelease(payload);
+                return Mono.error(new RejectedException(String.format("upstream rsocket of '%s' reach concurrency limit %d", serviceGsv, limiter.getLimit())));
+            }
+            long startNanos = System.nanoTime();
+            return request.doOnSuccess(r -> limiter.onSuccess(startNanos))
+                    .doOnError(e -> limiter.onError(startNanos, e))
+                    //取消并不代表upstream过载, 比如hedging落败的请求, 故不作为样本
+                    .doOnCancel(limiter::onIgnore);
+        });
+    }
+
+    /**
+     * 开启自适应并发度限制时, 发送请求前占用并发度, stream结束后释放
+     * stream耗时与upstream负载无关, 故不作为rtt样本
+     *
+     * @param payload 占用失败时需释放
+     */
+    private <T> Flux<T> limit(RSocket rsocket, Flux<T> request, Payload payload) {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimitEnabled ? limiters.get(rsocket) : null;
+        if (Objects.isNull(limiter)) {
+            return request;
+        }
+        return Flux.defer(() -> {
+            if (!limiter.tryAcquire()) {
+                ReferenceCountUtil.safeRelease(payload);
+                return Flux.error(new RejectedException(String.format("upstream rsocket of '%s' reach concurrency limit %d", serviceGsv, limiter.getLimit())));
+            }
+            return request.doFinally(signalType -> limiter.onIgnore());
         });
     }
 
@@ -274,7 +392,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         }
         return next(payload.data())
                 .doOnError(ex -> ReferenceCountUtil.safeRelease(payload))
-                .flatMap(rsocket -> rsocket.requestResponse(payload)
+                .flatMap(rsocket -> limit(rsocket, rsocket.requestResponse(payload), payload)
                         .onErrorResume(CONNECTION_ERROR_PREDICATE, error -> {
                             onRSocketClosed(rsocket, error);
                             return requestResponse(payload);
@@ -290,6 +408,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         }
         return next(payload.data())
                 .doOnError(ex -> ReferenceCountUtil.safeRelease(payload))
+                //fire and forget写出即结束, 不能反映upstream负载, 故不占用并发度, 也不作为rtt样本
                 .flatMap(rsocket -> rsocket.fireAndForget(payload)
                         .onErrorResume(CONNECTION_ERROR_PREDICATE, error -> {
                             onRSocketClosed(rsocket, error);
@@ -341,7 +460,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         }
         return next(payload.data())
                 .doOnError(ex -> ReferenceCountUtil.safeRelease(payload))
-                .flatMapMany(rsocket -> rsocket.requestStream(payload)
+                .flatMapMany(rsocket -> limit(rsocket, rsocket.requestStream(payload), payload)
                         .onErrorResume(CONNECTION_ERROR_PREDICATE, error -> {
                             onRSocketClosed(rsocket, error);
                             return requestStream(payload);
@@ -370,8 +489,9 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         if (isDisposed()) {
             return (Mono<Void>) disposedMono();
         }
-        awaitFirstConnect();
-        return Flux.fromIterable(activeRSockets.values()).flatMap(rsocket -> rsocket.metadataPush(payload)).then();
+        return afterFirstConnect(Flux.defer(() -> Flux.fromIterable(activeRSocketList))
+                .flatMap(rsocket -> rsocket.metadataPush(payload))
+                .then());
     }
 
     @Override
@@ -380,10 +500,12 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
         refreshScheduler.dispose();
         healthCheckDisposable.dispose();
         unhealthUrisCheckDisposable.dispose();
-        for (RSocket rsocket : activeRSockets.values()) {
+        for (RSocket rsocket : activeRSocketList) {
             rsocket.dispose();
         }
-        activeRSockets.clear();
+        updateActiveRSockets(Collections.emptyMap());
+        //首次连接已建立则无效果
+        firstConnectSink.tryEmitError(new IllegalStateException("requester is disposed"));
     }
 
     @Override
@@ -418,7 +540,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
             if (activeRSockets.containsKey(rsocketUri)) {
                 Map<String, RSocket> activeRSockets = new HashMap<>(getActiveRSockets());
                 activeRSockets.remove(rsocketUri);
-                this.activeRSockets = activeRSockets;
+                updateActiveRSockets(activeRSockets);
                 if (Objects.nonNull(cause)) {
                     log.error(String.format("connection '%s' closed, cause by", rsocketUri), cause);
                 } else {
@@ -438,7 +560,7 @@ public class LoadBalanceRSocketRequester extends AbstractRSocket implements Clou
     private void onRSocketReconnected(String rsocketUri, RSocket rsocket) {
         Map<String, RSocket> activeRSockets = new HashMap<>(getActiveRSockets());
         activeRSockets.put(rsocketUri, rsocket);
-        this.activeRSockets = activeRSockets;
+        updateActiveRSockets(activeRSockets);
         this.unhealthyUris.remove(rsocketUri);
         onRSocketConnected(rsocketUri, rsocket);
 
@@ -22,9 +22,37 @@ public interface MetricsNames {
     String BROKER_SERVICE_NUM = "rsocket.broker.service" + NUM_SUFFIX;
     /** broker接受upstream服务请求次数 */
     String RSOCKET_REQUEST_COUNT = "rsocket.request".concat(COUNT_SUFFIX);
+    /** broker转发request response请求的耗时 */
+    String BROKER_FORWARD = "rsocket.broker.forward";
+    /** broker处理app setup的耗时 */
+    String BROKER_SETUP = "rsocket.broker.setup";
+    /** broker排队及正在处理的app setup数量 */
+    String BROKER_SETUP_PENDING_NUM = "rsocket.broker.setup.pending" + NUM_SUFFIX;
 
 
     //-----------------------------------------------rsocket service-----------------------------------------------
     /** 下游服务请求超时的次数 */
     String RSOCKET_TIMEOUT_ERROR_COUNT = "rsocket.timeout.error".concat(COUNT_SUFFIX);
+    /** {@link Blocking}服务方法等待调用的数量 */
+    String RSOCKET_BLOCKING_QUEUE_NUM = "rsocket.blocking.queue" + NUM_SUFFIX;
+    /** 正在调用{@link Blocking}服务方法的线程数量 */
+    String RSOCKET_BLOCKING_ACTIVE_NUM = "rsocket.blocking.active" + NUM_SUFFIX;
+    /** {@link Blocking}服务方法因等待队列已满而被拒绝调用的次数 */
+    String RSOCKET_BLOCKING_REJECTED_COUNT = "rsocket.blocking.rejected".concat(COUNT_SUFFIX);
+    /** upstream rsocket自适应并发度limit */
+    String RSOCKET_UPSTREAM_LIMIT_NUM = "rsocket.upstream.limit" + NUM_SUFFIX;
+    /** upstream rsocket在途请求数 */
+    String RSOCKET_UPSTREAM_INFLIGHT_NUM = "rsocket.upstream.inflight" + NUM_SUFFIX;
+    /** upstream rsocket在途请求数达到limit而被拒绝的次数 */
+    String RSOCKET_UPSTREAM_REJECTED_COUNT = "rsocket.upstream.rejected".concat(COUNT_SUFFIX);
+    /** {@link Hedging}服务方法发送hedge请求的次数 */
+    String RSOCKET_HEDGING_COUNT = "rsocket.hedging".concat(COUNT_SUFFIX);
+    /** {@link Hedging}服务方法因hedging预算不足而放弃hedge请求的次数 */
+    String RSOCKET_HEDGING_REJECTED_COUNT = "rsocket.hedging.rejected".concat(COUNT_SUFFIX);
+    /** {@link ResponseCache}服务方法结果缓存命中次数 */
+    String RSOCKET_RESPONSE_CACHE_HIT_COUNT = "rsocket.response.cache.hit".concat(COUNT_SUFFIX);
+    /** {@link ResponseCache}服务方法结果缓存未命中次数 */
+    String RSOCKET_RESPONSE_CACHE_MISS_COUNT = "rsocket.response.cache.miss".concat(COUNT_SUFFIX);
+    /** {@link SingleFlight}服务方法合并在途请求的次数 */
+    String RSOCKET_SINGLE_FLIGHT_SHARED_COUNT = "rsocket.single.flight.shared".concat(COUNT_SUFFIX);
 }
@@ -56,7 +56,9 @@ public enum RSocketMimeType {
     /** message tags */
     MESSAGE_TAGS("Message-Tags", WellKnownMimeType.MESSAGE_RSOCKET_MESSAGE_TAGS),
     /** message origin */
-    MESSAGE_ORIGIN("Message-Origin", WellKnownMimeType.MESSAGE_RSOCKET_MESSAGE_ORIGIN);
+    MESSAGE_ORIGIN("Message-Origin", WellKnownMimeType.MESSAGE_RSOCKET_MESSAGE_ORIGIN),
+    /** 批量请求标识 */
+    BATCH("Meta-Batch", WellKnownMimeType.MESSAGE_RSOCKET_BATCH);
 
     /** key -> id, value -> mime type */
     public static final Map<Byte, RSocketMimeType> ID_2_MIME_TYPE_MAP;
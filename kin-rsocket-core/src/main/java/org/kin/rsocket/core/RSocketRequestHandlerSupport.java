@@ -1,19 +1,20 @@
 package org.kin.rsocket.core;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.Payload;
 import io.rsocket.exceptions.InvalidException;
 import io.rsocket.util.ByteBufPayload;
 import org.kin.framework.utils.ExceptionUtils;
 import org.kin.rsocket.core.codec.ObjectCodecs;
-import org.kin.rsocket.core.metadata.GSVRoutingMetadata;
-import org.kin.rsocket.core.metadata.MessageAcceptMimeTypesMetadata;
-import org.kin.rsocket.core.metadata.MessageMimeTypeMetadata;
+import org.kin.rsocket.core.metadata.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * requester request
  *
@@ -67,7 +68,12 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
             if (methodInvoker != null) {
                 Object result;
                 if (methodInvoker.isAsyncReturn()) {
-                    result = invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload);
+                    if (methodInvoker.isBlocking()) {
+                        //延迟到blocking scheduler上调用
+                        result = Mono.defer(() -> ReactiveObjAdapter.INSTANCE.toMono(invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload)));
+                    } else {
+                        result = invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload);
+                    }
                 } else {
                     result = Mono.create((sink) -> {
                         try {
@@ -92,9 +98,9 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                 }
                 //composite data for return value
                 RSocketMimeType resultEncodingType = resultEncodingType(acceptMimeTypesMetadata, dataEncodingMetadata.getMessageMimeType(), methodInvoker);
-                return ReactiveObjAdapter.INSTANCE.toMono(result)
+                return offloadIfBlocking(methodInvoker, ReactiveObjAdapter.INSTANCE.toMono(result), payload)
                         .map(object -> ObjectCodecs.INSTANCE.encodeResult(object, resultEncodingType))
-                        .map(dataByteBuf -> ByteBufPayload.create(dataByteBuf, ObjectCodecs.INSTANCE.getDefaultCompositeMetadataByteBuf(resultEncodingType)));
+                        .map(dataByteBuf -> ByteBufPayload.create(dataByteBuf, responseCompositeMetadata(methodInvoker, resultEncodingType)));
             } else {
                 ReferenceCountUtil.safeRelease(payload);
                 return Mono.error(new InvalidException(noServiceMethodInvokerFoundTips(service, handler)));
@@ -105,6 +111,18 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
         }
     }
 
+    /**
+     * request response返回结果的composite metadata, 服务方法标识了{@link ResponseCache}, 则附带{@link CacheControlMetadata}
+     */
+    private ByteBuf responseCompositeMetadata(ReactiveMethodInvoker methodInvoker, RSocketMimeType resultEncodingType) {
+        long cacheTtl = methodInvoker.getCacheTtl();
+        if (cacheTtl <= 0) {
+            return ObjectCodecs.INSTANCE.getDefaultCompositeMetadataByteBuf(resultEncodingType);
+        }
+        return RSocketCompositeMetadata.from(MessageMimeTypeMetadata.from(resultEncodingType),
+                CacheControlMetadata.from(cacheTtl)).getContent();
+    }
+
     /**
      * 本地调用服务接口方法并针对FireAndForget Frame Type场景定制额外逻辑
      */
@@ -115,6 +133,12 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
         ReactiveMethodInvoker methodInvoker = LocalRSocketServiceRegistry.INSTANCE.getInvoker(routing.handlerId());
         if (methodInvoker != null) {
             if (methodInvoker.isAsyncReturn()) {
+                if (methodInvoker.isBlocking()) {
+                    //延迟到blocking scheduler上调用
+                    return offloadIfBlocking(methodInvoker,
+                            Mono.defer(() -> ReactiveObjAdapter.INSTANCE.toMono(invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload))),
+                            payload);
+                }
                 try {
                     return ReactiveObjAdapter.INSTANCE.toMono(invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload));
                 } catch (Exception e) {
@@ -122,7 +146,7 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                     return Mono.error(e);
                 }
             } else {
-                return Mono.create((sink) -> {
+                return offloadIfBlocking(methodInvoker, Mono.create((sink) -> {
                     try {
                         invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload);
                         sink.success();
@@ -130,7 +154,7 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                         log.error(failCallLog(service, handler), e);
                         sink.error(e);
                     }
-                });
+                }), payload);
             }
         } else {
             ReferenceCountUtil.safeRelease(payload);
@@ -138,6 +162,25 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
         }
     }
 
+    /**
+     * 本地调用服务接口方法并针对{@link BatchMetadata}标识的批量FireAndForget请求定制额外逻辑
+     * payload data由多个[4 bytes长度][参数bytes]组成, 按顺序逐个调用服务方法, 单个调用失败不影响其余调用
+     */
+    protected Mono<Void> localBatchFireAndForget(GSVRoutingMetadata routing, MessageMimeTypeMetadata dataEncodingMetadata, Payload payload) {
+        ByteBuf data = payload.data();
+        return Flux.<Payload>generate(sink -> {
+                    if (data.readableBytes() >= 4) {
+                        int length = data.readInt();
+                        sink.next(ByteBufPayload.create(data.readRetainedSlice(length)));
+                    } else {
+                        sink.complete();
+                    }
+                })
+                .concatMap(itemPayload -> localFireAndForget(routing, dataEncodingMetadata, itemPayload).onErrorResume(e -> Mono.empty()))
+                .doFinally(s -> ReferenceCountUtil.safeRelease(payload))
+                .then();
+    }
+
     /**
      * 本地调用服务接口方法并针对RequestStream Frame Type场景定制额外逻辑
      */
@@ -150,10 +193,18 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
         try {
             ReactiveMethodInvoker methodInvoker = LocalRSocketServiceRegistry.INSTANCE.getInvoker(routing.handlerId());
             if (methodInvoker != null) {
-                Object result = invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload);
+                Flux<Object> result;
+                if (methodInvoker.isBlocking()) {
+                    //在blocking scheduler上调用
+                    result = Flux.defer(() -> ReactiveObjAdapter.INSTANCE.toFlux(invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload)))
+                            .subscribeOn(BlockingServiceExecutor.INSTANCE.getScheduler())
+                            .doOnError(RejectedExecutionException.class, e -> releaseIfRejected(payload));
+                } else {
+                    result = ReactiveObjAdapter.INSTANCE.toFlux(invokeServiceMethod(methodInvoker, dataEncodingMetadata, payload));
+                }
                 //composite data for return value
                 RSocketMimeType resultEncodingType = resultEncodingType(acceptMimeTypesMetadata, dataEncodingMetadata.getMessageMimeType(), methodInvoker);
-                return ReactiveObjAdapter.INSTANCE.toFlux(result)
+                return result
                         .map(object -> ObjectCodecs.INSTANCE.encodeResult(object, resultEncodingType))
                         .map(dataByteBuf -> ByteBufPayload.create(dataByteBuf, ObjectCodecs.INSTANCE.getDefaultCompositeMetadataByteBuf(resultEncodingType)));
             } else {
@@ -192,7 +243,7 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                                     ReferenceCountUtil.safeRelease(payload);
                                 }
                             });
-                    result = methodInvoker.invoke(paramFlux);
+                    result = methodInvoker.invoke1(paramFlux);
                 } else {
                     Object paramFirst = ObjectCodecs.INSTANCE.decodeResult(
                             dataEncodingMetadata.getMessageMimeType(),
@@ -209,7 +260,7 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                                     ReferenceCountUtil.safeRelease(payload);
                                 }
                             });
-                    result = methodInvoker.invoke(paramFirst, paramFlux);
+                    result = methodInvoker.invoke2(paramFirst, paramFlux);
                     ReferenceCountUtil.safeRelease(signal);
                 }
                 //composite data for return value
@@ -234,6 +285,29 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
     }
 
 
+    /**
+     * 如果服务方法是阻塞的, 则在{@link BlockingServiceExecutor}上调用, 不阻塞netty event loop
+     *
+     * @param invocation 服务方法调用逻辑, 订阅时才会调用
+     * @param payload    请求payload, 拒绝调用时需释放
+     */
+    private <T> Mono<T> offloadIfBlocking(ReactiveMethodInvoker methodInvoker, Mono<T> invocation, Payload payload) {
+        if (!methodInvoker.isBlocking()) {
+            return invocation;
+        }
+        return invocation.subscribeOn(BlockingServiceExecutor.INSTANCE.getScheduler())
+                .doOnError(RejectedExecutionException.class, e -> releaseIfRejected(payload));
+    }
+
+    /**
+     * 服务方法被拒绝调用时, payload仍未释放
+     */
+    private void releaseIfRejected(Payload payload) {
+        if (payload.refCnt() > 0) {
+            ReferenceCountUtil.safeRelease(payload);
+        }
+    }
+
     /**
      * invoke service method
      * 如果遇到异常, 则抛出
@@ -246,10 +320,11 @@ public abstract class RSocketRequestHandlerSupport extends AbstractRSocket {
                 if (args instanceof Object[]) {
                     result = methodInvoker.invoke((Object[]) args);
                 } else {
-                    result = methodInvoker.invoke(args);
+                    //单参数, 直接调用, 无需封装成参数数组
+                    result = methodInvoker.invoke1(args);
                 }
             } else {
-                result = methodInvoker.invoke();
+                result = methodInvoker.invoke0();
             }
         } catch (Exception e) {
             ExceptionUtils.throwExt(e);
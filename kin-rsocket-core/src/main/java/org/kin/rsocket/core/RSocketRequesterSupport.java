@@ -35,6 +35,14 @@ public interface RSocketRequesterSupport {
      */
     SocketAcceptor socketAcceptor();
 
+    /**
+     * @return 是否开启每个upstream rsocket的自适应并发度限制
+     * @see org.kin.rsocket.core.upstream.AdaptiveConcurrencyLimiter
+     */
+    default boolean adaptiveConcurrencyLimit() {
+        return false;
+    }
+
     /**
      * @return rsocket connector responder interceptors
      */
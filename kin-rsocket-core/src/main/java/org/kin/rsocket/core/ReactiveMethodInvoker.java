@@ -9,6 +9,7 @@ import reactor.core.publisher.Mono;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -18,7 +19,13 @@ import java.util.concurrent.CompletableFuture;
  * @date 2021/3/27
  */
 public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
-    /** 服务实例代理 */
+    /** 基于{@link LambdaMethodInvokers}生成的无参方法调用类, 不支持则为null */
+    private final LambdaMethodInvokers.Invoker0 invoker0;
+    /** 基于{@link LambdaMethodInvokers}生成的1个参数方法调用类, 不支持则为null */
+    private final LambdaMethodInvokers.Invoker1 invoker1;
+    /** 基于{@link LambdaMethodInvokers}生成的2个参数方法调用类, 不支持则为null */
+    private final LambdaMethodInvokers.Invoker2 invoker2;
+    /** 服务实例代理, 仅当无法生成调用类时使用 */
     private final ProxyInvoker<?> invoker;
     /** 方法是否是异步返回 */
     private boolean asyncReturn;
@@ -26,11 +33,22 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
     private boolean binaryReturn;
     /** 方法参数类型 */
     private Class<?>[] parametersTypes;
+    /** 方法参数泛型参数实际类型, 预先解析, 避免每次请求都反射 */
+    private final Class<?>[] inferredClassForParameters;
+    /** 方法是否阻塞, 即标识了{@link Blocking} */
+    private final boolean blocking;
+    /** 方法结果缓存有效时间(毫秒), 即{@link ResponseCache#ttl()}, 0则不缓存 */
+    private final long cacheTtl;
 
     public ReactiveMethodInvoker(Method method, Object provider) {
         super(method);
 
-        if (RSocketAppContext.ENHANCE) {
+        this.invoker0 = LambdaMethodInvokers.invoker0(method, provider);
+        this.invoker1 = LambdaMethodInvokers.invoker1(method, provider);
+        this.invoker2 = LambdaMethodInvokers.invoker2(method, provider);
+        if (Objects.nonNull(invoker0) || Objects.nonNull(invoker1) || Objects.nonNull(invoker2)) {
+            this.invoker = null;
+        } else if (RSocketAppContext.ENHANCE) {
             this.invoker = Proxys.byteBuddy().enhanceMethod(new MethodDefinition<>(provider, method));
         } else {
             this.invoker = Proxys.reflection().enhanceMethod(new MethodDefinition<>(provider, method));
@@ -39,6 +57,14 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
         initReturn();
 
         this.parametersTypes = this.method.getParameterTypes();
+        Type[] genericParameterTypes = this.method.getGenericParameterTypes();
+        this.inferredClassForParameters = new Class<?>[genericParameterTypes.length];
+        for (int i = 0; i < genericParameterTypes.length; i++) {
+            inferredClassForParameters[i] = ClassUtils.getInferredClassForGeneric(genericParameterTypes[i]);
+        }
+        this.blocking = isBlocking(method, provider);
+        ResponseCache responseCache = method.getAnnotation(ResponseCache.class);
+        this.cacheTtl = Objects.nonNull(responseCache) ? Math.max(responseCache.ttl(), 0) : 0;
     }
 
     /**
@@ -60,6 +86,29 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
         this.binaryReturn = this.inferredClassForReturn != null && BINARY_CLASS_LIST.contains(this.inferredClassForReturn);
     }
 
+    /**
+     * 服务接口, 接口方法, 实现类及其实现方法, 任一标识了{@link Blocking}, 则认为该方法是阻塞的
+     */
+    private static boolean isBlocking(Method method, Object provider) {
+        if (method.isAnnotationPresent(Blocking.class) || method.getDeclaringClass().isAnnotationPresent(Blocking.class)) {
+            return true;
+        }
+        //provider可能是代理类, 故需遍历父类
+        for (Class<?> claxx = provider.getClass(); claxx != null && claxx != Object.class; claxx = claxx.getSuperclass()) {
+            if (claxx.isAnnotationPresent(Blocking.class)) {
+                return true;
+            }
+            try {
+                if (claxx.getDeclaredMethod(method.getName(), method.getParameterTypes()).isAnnotationPresent(Blocking.class)) {
+                    return true;
+                }
+            } catch (NoSuchMethodException e) {
+                //ignore
+            }
+        }
+        return false;
+    }
+
     /**
      * 目标方法调用
      */
@@ -69,7 +118,47 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
             throw new IllegalArgumentException(String.format("request params is not right! service method need %d params, not %d", paramCount, args.length));
         }
 
-        return invoker.invoke(args);
+        if (Objects.nonNull(invoker)) {
+            return invoker.invoke(args);
+        }
+        switch (paramCount) {
+            case 0:
+                return invoker0.invoke();
+            case 1:
+                return invoker1.invoke(args[0]);
+            default:
+                return invoker2.invoke(args[0], args[1]);
+        }
+    }
+
+    /**
+     * 无参目标方法调用, 无需创建参数数组
+     */
+    public Object invoke0() throws Exception {
+        if (Objects.nonNull(invoker0)) {
+            return invoker0.invoke();
+        }
+        return invoke();
+    }
+
+    /**
+     * 1个参数目标方法调用, 无需创建参数数组
+     */
+    public Object invoke1(Object arg0) throws Exception {
+        if (Objects.nonNull(invoker1)) {
+            return invoker1.invoke(arg0);
+        }
+        return invoke(new Object[]{arg0});
+    }
+
+    /**
+     * 2个参数目标方法调用, 无需创建参数数组
+     */
+    public Object invoke2(Object arg0, Object arg1) throws Exception {
+        if (Objects.nonNull(invoker2)) {
+            return invoker2.invoke(arg0, arg1);
+        }
+        return invoke(arg0, arg1);
     }
 
     //getter
@@ -78,7 +167,7 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
     }
 
     public Class<?> getInferredClassForParameter(int paramIndex) {
-        return ClassUtils.getInferredClassForGeneric(method.getGenericParameterTypes()[paramIndex]);
+        return inferredClassForParameters[paramIndex];
     }
 
     public boolean isAsyncReturn() {
@@ -88,4 +177,12 @@ public final class ReactiveMethodInvoker extends ReactiveMethodSupport {
     public boolean isBinaryReturn() {
         return this.binaryReturn;
     }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
 }
\ No newline at end of file
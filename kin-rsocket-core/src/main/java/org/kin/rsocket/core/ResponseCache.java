@@ -0,0 +1,34 @@
+package org.kin.rsocket.core;
+
+import java.lang.annotation.*;
+
+/**
+ * 标识rsocket service接口方法的结果可被requester缓存, 仅对request response方法生效, 适用于参数相同时结果也相同的查询方法
+ * <p>
+ * responder返回结果时会附带{@link org.kin.rsocket.core.metadata.CacheControlMetadata}, requester以方法参数编码后的bytes为key缓存结果,
+ * 缓存有效期优先取responder返回的{@link org.kin.rsocket.core.metadata.CacheControlMetadata}, 没有则取{@link #ttl()}.
+ * 可通过广播{@link org.kin.rsocket.core.event.CacheInvalidEvent}(key为service.handler或者service)使requester缓存失效
+ * <pre class="code">
+ * public interface DictService {
+ *     &#64;ResponseCache(ttl = 60_000)
+ *     Mono&lt;Dict&gt; findByCode(String code);
+ * }
+ * </pre>
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseCache {
+    /**
+     * 缓存有效时间(毫秒)
+     */
+    long ttl();
+
+    /**
+     * requester端该方法最多缓存的结果数量
+     */
+    int maxSize() default 1000;
+}
@@ -0,0 +1,24 @@
+package org.kin.rsocket.core;
+
+import java.lang.annotation.*;
+
+/**
+ * 标识rsocket service接口方法开启请求合并(single flight), 仅对request response方法生效
+ * <p>
+ * 开启后, requester对同一方法参数相同且仍在途的请求只发送一次, 所有调用方共享同一个结果实例, 常用于缓存失效时的请求风暴.
+ * 因为结果实例共享, 调用方不应修改结果实例
+ * <pre class="code">
+ * public interface UserService {
+ *     &#64;SingleFlight
+ *     Mono&lt;User&gt; findById(Integer id);
+ * }
+ * </pre>
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+}
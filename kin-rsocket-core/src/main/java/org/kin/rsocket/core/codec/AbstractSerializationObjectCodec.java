@@ -1,14 +1,17 @@
 package org.kin.rsocket.core.codec;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
-import io.netty.util.ReferenceCountUtil;
 import org.kin.framework.utils.CollectionUtils;
-import org.kin.framework.utils.ExceptionUtils;
 import org.kin.serialization.Serialization;
 
 /**
+ * 基于{@link Serialization}的codec, 即kryo, hessian2, protobuf和avro
+ * <p>
+ * {@link Serialization}反序列化可直接读取{@link ByteBuf}, 但序列化仅返回byte[], 不支持写入外部buffer,
+ * 故这些codec编码时仍会在序列化实现内部产生一份中间byte[], 无法像json和cbor那样按{@link EncodeSizeHints}直接写入pooled buffer.
+ * 此处仅避免再将byte[]复制到pooled buffer
+ *
  * @author huangjianqin
  * @date 2021/3/26
  */
@@ -22,16 +25,21 @@ public abstract class AbstractSerializationObjectCodec implements ObjectCodec {
 
     /**
      * 序列化对象
+     * <p>
+     * {@link Serialization}序列化仅返回byte[], 故直接wrap序列化后的bytes, 不再分配pooled buffer并复制一次,
+     * 大payload时可减少一半内存分配
      */
     private ByteBuf encodeObj(Object obj) {
-        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(DEFAULT_BUFFER_SIZE);
+        byte[] bytes;
         try {
-            byteBuf.writeBytes(serialization.serialize(obj));
+            bytes = serialization.serialize(obj);
         } catch (Exception e) {
-            ReferenceCountUtil.safeRelease(byteBuf);
-            ExceptionUtils.throwExt(e);
+            throw new ObjectCodecException(e.getMessage(), e);
         }
-        return byteBuf;
+        if (bytes == null || bytes.length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        return Unpooled.wrappedBuffer(bytes);
     }
 
     /**
@@ -46,15 +46,7 @@ public class CborObjectCodec implements ObjectCodec {
     @Override
     public ByteBuf encodeParams(Object[] args) throws ObjectCodecException {
         if (CollectionUtils.isNonEmpty(args)) {
-            ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(DEFAULT_BUFFER_SIZE);
-            try {
-                ByteBufOutputStream bos = new ByteBufOutputStream(byteBuf);
-                PARSER.writeValue((OutputStream) bos, args);
-                return byteBuf;
-            } catch (Exception e) {
-                ReferenceCountUtil.safeRelease(byteBuf);
-                ExceptionUtils.throwExt(e);
-            }
+            return writeByteBuf(args);
         }
 
         return Unpooled.EMPTY_BUFFER;
@@ -76,19 +68,29 @@ public class CborObjectCodec implements ObjectCodec {
     @Override
     public ByteBuf encodeResult(Object result) throws ObjectCodecException {
         if (result != null) {
-            ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(DEFAULT_BUFFER_SIZE);
-            try {
-                ByteBufOutputStream bos = new ByteBufOutputStream(byteBuf);
-                PARSER.writeValue((OutputStream) bos, result);
-                return byteBuf;
-            } catch (Exception e) {
-                ReferenceCountUtil.safeRelease(byteBuf);
-                ExceptionUtils.throwExt(e);
-            }
+            return writeByteBuf(result);
         }
         return Unpooled.EMPTY_BUFFER;
     }
 
+    /**
+     * 直接序列化到pooled {@link ByteBuf}, 按该类型上次编码的字节数分配buffer, 减少扩容
+     */
+    private static ByteBuf writeByteBuf(Object obj) {
+        Class<?> type = obj.getClass();
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(EncodeSizeHints.INSTANCE.sizeHint(type));
+        try {
+            ByteBufOutputStream bos = new ByteBufOutputStream(byteBuf);
+            PARSER.writeValue((OutputStream) bos, obj);
+            EncodeSizeHints.INSTANCE.record(type, byteBuf.readableBytes());
+            return byteBuf;
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(byteBuf);
+            ExceptionUtils.throwExt(e);
+        }
+        throw new IllegalStateException("encounter unknown error");
+    }
+
     @Override
     public Object decodeResult(ByteBuf data, Class<?> targetClass) throws ObjectCodecException {
         if (data.readableBytes() > 0 && targetClass != null) {
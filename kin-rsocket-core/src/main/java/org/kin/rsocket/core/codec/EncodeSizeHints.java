@@ -0,0 +1,48 @@
+package org.kin.rsocket.core.codec;
+
+/**
+ * 记录每个类型最近一次编码后的字节数, 作为下次分配{@link io.netty.buffer.ByteBuf}的初始容量, 减少编码过程中buffer扩容及复制
+ * <p>
+ * 仅仅是提示值, 并发更新时丢失部分记录也无影响, 故不加锁
+ *
+ * @author huangjianqin
+ * @date 2022/3/11
+ */
+public final class EncodeSizeHints {
+    public static final EncodeSizeHints INSTANCE = new EncodeSizeHints();
+    /** 初始容量上限, 超大payload交由allocator扩容, 避免一次异常大的payload导致后续小payload都占用大buffer */
+    private static final int MAX_SIZE_HINT = 1024 * 1024;
+
+    /** 每个类型绑定的编码字节数 */
+    private final ClassValue<SizeHint> sizeHints = new ClassValue<SizeHint>() {
+        @Override
+        protected SizeHint computeValue(Class<?> type) {
+            return new SizeHint();
+        }
+    };
+
+    private EncodeSizeHints() {
+    }
+
+    /**
+     * @return 编码指定类型实例时, 建议分配的buffer初始容量
+     */
+    public int sizeHint(Class<?> type) {
+        return sizeHints.get(type).size;
+    }
+
+    /**
+     * 记录指定类型实例编码后的字节数
+     */
+    public void record(Class<?> type, int encodedSize) {
+        //预留1/8空间, 容纳同一类型实例的长度波动
+        int size = encodedSize + (encodedSize >>> 3);
+        sizeHints.get(type).size = Math.max(ObjectCodec.DEFAULT_BUFFER_SIZE, Math.min(size, MAX_SIZE_HINT));
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+    private static final class SizeHint {
+        /** buffer初始容量 */
+        private volatile int size = ObjectCodec.DEFAULT_BUFFER_SIZE;
+    }
+}
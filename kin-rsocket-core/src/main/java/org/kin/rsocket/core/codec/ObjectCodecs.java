@@ -2,6 +2,7 @@ package org.kin.rsocket.core.codec;
 
 import com.google.common.collect.ImmutableMap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import org.kin.framework.utils.CollectionUtils;
@@ -30,6 +31,10 @@ public final class ObjectCodecs {
      * 可以省去创建mimetype元数据的耗时, 相当于MessageMimeTypeMetadata元数据池
      */
     private final Map<RSocketMimeType, ByteBuf> compositeMetadataForMimeTypes;
+    /** {@link #compositeMetadataForMimeTypes}的数组形式, 与{@link #defaultCompositeMetadataMimeTypes}一一对应, 用于快速匹配response metadata */
+    private final ByteBuf[] defaultCompositeMetadatas;
+    /** {@link #defaultCompositeMetadatas}对应的mime type */
+    private final RSocketMimeType[] defaultCompositeMetadataMimeTypes;
 
     private ObjectCodecs() {
         ImmutableMap.Builder<RSocketMimeType, ObjectCodec> codecBuilder = ImmutableMap.builder();
@@ -47,6 +52,8 @@ public final class ObjectCodecs {
 
         mimeType2Codec = codecBuilder.build();
         compositeMetadataForMimeTypes = mimeTypeMetadataBytesBuilder.build();
+        defaultCompositeMetadatas = compositeMetadataForMimeTypes.values().toArray(new ByteBuf[0]);
+        defaultCompositeMetadataMimeTypes = compositeMetadataForMimeTypes.keySet().toArray(new RSocketMimeType[0]);
     }
 
     /**
@@ -120,6 +127,24 @@ public final class ObjectCodecs {
         return this.compositeMetadataForMimeTypes.get(mimeType).retainedDuplicate();
     }
 
+    /**
+     * 匹配{@link #getDefaultCompositeMetadataByteBuf(RSocketMimeType)}返回的composite metadata
+     * responder返回结果时都使用默认的composite metadata, 故requester可直接按字节匹配得到数据编码类型, 无需解析composite metadata
+     *
+     * @return composite metadata对应的数据编码类型, 不是默认的composite metadata则返回null
+     */
+    public RSocketMimeType matchDefaultCompositeMetadata(ByteBuf compositeMetadata) {
+        int length = compositeMetadata.readableBytes();
+        for (int i = 0; i < defaultCompositeMetadatas.length; i++) {
+            ByteBuf defaultCompositeMetadata = defaultCompositeMetadatas[i];
+            if (defaultCompositeMetadata.readableBytes() == length &&
+                    ByteBufUtil.equals(defaultCompositeMetadata, defaultCompositeMetadata.readerIndex(), compositeMetadata, compositeMetadata.readerIndex(), length)) {
+                return defaultCompositeMetadataMimeTypes[i];
+            }
+        }
+        return null;
+    }
+
     /**
      * 处理encode和decode期间发生的异常
      */
@@ -0,0 +1,38 @@
+package org.kin.rsocket.core.metadata;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.kin.rsocket.core.RSocketMimeType;
+
+/**
+ * 批量请求标识, 无内容
+ * 标识payload data由多个请求的参数bytes组成, 每个请求格式为[4 bytes长度][参数bytes], 目前仅用于fire and forget
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+public final class BatchMetadata implements MetadataAware {
+    public static final BatchMetadata INSTANCE = new BatchMetadata();
+
+    public static BatchMetadata from(ByteBuf content) {
+        return INSTANCE;
+    }
+
+    private BatchMetadata() {
+    }
+
+    @Override
+    public RSocketMimeType mimeType() {
+        return RSocketMimeType.BATCH;
+    }
+
+    @Override
+    public ByteBuf getContent() {
+        return Unpooled.EMPTY_BUFFER;
+    }
+
+    @Override
+    public void load(ByteBuf byteBuf) {
+        //无内容
+    }
+}
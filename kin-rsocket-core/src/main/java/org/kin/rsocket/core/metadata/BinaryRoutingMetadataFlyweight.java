@@ -0,0 +1,337 @@
+package org.kin.rsocket.core.metadata;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.kin.rsocket.core.RSocketMimeType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * composite metadata {@link ByteBuf}的只读游标, 用于broker及service快速route
+ * <p>
+ * 仅仅扫描一遍{@link CompositeMetadata} entry header, 按绝对下标读取首个entry({@link BinaryRoutingMetadata})的serviceId, handlerId, flags,
+ * 以及{@link MessageMimeTypeMetadata}的mime type id, 并记录{@link MessageAcceptMimeTypesMetadata}和{@link TracingMetadata}的位置以便按需解析, 不会修改reader index, 也不会创建{@link BinaryRoutingMetadata}, flags数组和slice等中间对象
+ * <p>
+ * 非线程安全, 可复用, 建议使用{@link #current()}获取当前线程绑定的实例,
+ * 并在同一调用栈中取出所需字段后调用{@link #clear()}, 不要异步持有
+ *
+ * @author huangjianqin
+ * @date 2022/3/5
+ */
+public final class BinaryRoutingMetadataFlyweight {
+    /** 线程绑定实例 */
+    private static final FastThreadLocal<BinaryRoutingMetadataFlyweight> THREAD_LOCAL = new FastThreadLocal<BinaryRoutingMetadataFlyweight>() {
+        @Override
+        protected BinaryRoutingMetadataFlyweight initialValue() {
+            return new BinaryRoutingMetadataFlyweight();
+        }
+    };
+    /** binary routing mime type id */
+    private static final byte BINARY_ROUTING_ID = WellKnownMimeType.MESSAGE_RSOCKET_BINARY_ROUTING.getIdentifier();
+    /** message mime type id */
+    private static final byte MESSAGE_MIME_TYPE_ID = WellKnownMimeType.MESSAGE_RSOCKET_MIMETYPE.getIdentifier();
+    /** message accept mime types id */
+    private static final byte MESSAGE_ACCEPT_MIME_TYPES_ID = WellKnownMimeType.MESSAGE_RSOCKET_ACCEPT_MIMETYPES.getIdentifier();
+    /** tracing mime type id */
+    private static final byte TRACING_ID = WellKnownMimeType.MESSAGE_RSOCKET_TRACING_ZIPKIN.getIdentifier();
+    /** cache control mime type id */
+    private static final byte CACHE_CONTROL_ID = WellKnownMimeType.MESSAGE_RSOCKET_DATA_CACHE_CONTROL.getIdentifier();
+    /** batch mime type id */
+    private static final byte BATCH_ID = WellKnownMimeType.MESSAGE_RSOCKET_BATCH.getIdentifier();
+    /** 未知mime type id */
+    private static final byte UNKNOWN_MIME_TYPE_ID = -1;
+    /** sticky 在flags数值里面的 plot, 与{@link BinaryRoutingMetadata}一致 */
+    private static final int STICKY_PLOT = 0;
+
+    /** 当前读取的composite metadata */
+    private ByteBuf compositeByteBuf;
+    /** 首个entry是否是{@link BinaryRoutingMetadata} */
+    private boolean binaryRouting;
+    /** 参考{@link BinaryRoutingMetadata#getServiceId()} */
+    private int serviceId;
+    /** 参考{@link BinaryRoutingMetadata#getHandlerId()} */
+    private int handlerId;
+    /** flags在composite metadata中的绝对下标 */
+    private int flagsIndex;
+    /** flags数量 */
+    private int flagSize;
+    /** handler bytes在composite metadata中的绝对下标 */
+    private int handlerIndex;
+    /** handler bytes长度 */
+    private int handlerLength;
+    /** {@link MessageMimeTypeMetadata}的mime type id, 没有则为{@link #UNKNOWN_MIME_TYPE_ID} */
+    private byte messageMimeTypeId = UNKNOWN_MIME_TYPE_ID;
+    /** 是否存在非well known mime type的{@link MessageMimeTypeMetadata}, 此时需完整解析composite metadata */
+    private boolean customMessageMimeType;
+    /** {@link MessageAcceptMimeTypesMetadata}在composite metadata中的绝对下标, 没有则为-1 */
+    private int acceptMimeTypesIndex = -1;
+    /** {@link MessageAcceptMimeTypesMetadata}长度 */
+    private int acceptMimeTypesLength;
+    /** {@link TracingMetadata}在composite metadata中的绝对下标, 没有则为-1 */
+    private int tracingIndex = -1;
+    /** {@link TracingMetadata}长度 */
+    private int tracingLength;
+    /** {@link CacheControlMetadata}在composite metadata中的绝对下标, 没有则为-1 */
+    private int cacheControlIndex = -1;
+    /** 是否包含{@link BatchMetadata} */
+    private boolean batch;
+    /** 读取varint时的游标 */
+    private int varIntIndex;
+
+    /**
+     * @return 当前线程绑定的实例
+     */
+    public static BinaryRoutingMetadataFlyweight current() {
+        return THREAD_LOCAL.get();
+    }
+
+    /**
+     * 扫描composite metadata, 读取快速路由所需字段
+     *
+     * @param compositeByteBuf composite metadata bytes
+     * @return 首个entry是否是{@link BinaryRoutingMetadata}
+     */
+    public boolean wrap(ByteBuf compositeByteBuf) {
+        clear();
+        this.compositeByteBuf = compositeByteBuf;
+
+        int index = compositeByteBuf.readerIndex();
+        int end = compositeByteBuf.writerIndex();
+        boolean first = true;
+        //header至少包含1 byte mime type和3 byte content长度
+        while (index + 4 <= end) {
+            byte mimeIdOrLength = compositeByteBuf.getByte(index);
+            byte mimeId;
+            if ((mimeIdOrLength & 0x80) != 0) {
+                //well known mime type
+                mimeId = (byte) (mimeIdOrLength & 0x7F);
+                index += 1;
+            } else {
+                //custom mime type, 跳过mime type string
+                mimeId = UNKNOWN_MIME_TYPE_ID;
+                index += 1 + (mimeIdOrLength & 0xFF) + 1;
+            }
+            if (index + 3 > end) {
+                break;
+            }
+
+            int contentLength = compositeByteBuf.getUnsignedMedium(index);
+            int contentIndex = index + 3;
+            if (contentIndex + contentLength > end) {
+                break;
+            }
+
+            if (first && mimeId == BINARY_ROUTING_ID) {
+                readBinaryRouting(contentIndex, contentIndex + contentLength);
+            } else if (mimeId == MESSAGE_MIME_TYPE_ID && contentLength > 0) {
+                byte firstByte = compositeByteBuf.getByte(contentIndex);
+                if (firstByte < 0) {
+                    //已知的mimeType第8位都是1
+                    messageMimeTypeId = (byte) (firstByte & 0x7F);
+                } else {
+                    customMessageMimeType = true;
+                }
+            } else if (mimeId == MESSAGE_ACCEPT_MIME_TYPES_ID) {
+                acceptMimeTypesIndex = contentIndex;
+                acceptMimeTypesLength = contentLength;
+            } else if (mimeId == TRACING_ID) {
+                tracingIndex = contentIndex;
+                tracingLength = contentLength;
+            } else if (mimeId == CACHE_CONTROL_ID && contentLength >= 8) {
+                cacheControlIndex = contentIndex;
+            } else if (mimeId == BATCH_ID) {
+                batch = true;
+            }
+            first = false;
+            index = contentIndex + contentLength;
+        }
+        return binaryRouting;
+    }
+
+    /**
+     * 读取{@link BinaryRoutingMetadata}内容, 格式参考{@link BinaryRoutingMetadata#getContent()}
+     */
+    private void readBinaryRouting(int contentIndex, int contentEnd) {
+        varIntIndex = contentIndex;
+        int serviceId = readRawVarInt32(contentEnd);
+        int handlerId = readRawVarInt32(contentEnd);
+        int flagSize = readRawVarInt32(contentEnd);
+        if (varIntIndex < 0 || flagSize < 0 || varIntIndex + flagSize > contentEnd) {
+            return;
+        }
+        int flagsIndex = varIntIndex;
+        varIntIndex += flagSize;
+
+        int handlerLength = readRawVarInt32(contentEnd);
+        if (varIntIndex < 0 || handlerLength < 0 || varIntIndex + handlerLength > contentEnd) {
+            return;
+        }
+
+        this.serviceId = serviceId;
+        this.handlerId = handlerId;
+        this.flagsIndex = flagsIndex;
+        this.flagSize = flagSize;
+        this.handlerIndex = varIntIndex;
+        this.handlerLength = handlerLength;
+        this.binaryRouting = true;
+    }
+
+    /**
+     * 从{@link #varIntIndex}开始读取protobuf raw varint32, 与{@link org.kin.transport.netty.utils.VarIntUtils#readRawVarInt32(ByteBuf)}对应
+     * 越界时, {@link #varIntIndex}置为-1
+     */
+    private int readRawVarInt32(int end) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (varIntIndex < 0 || varIntIndex >= end) {
+                varIntIndex = -1;
+                return 0;
+            }
+            byte b = compositeByteBuf.getByte(varIntIndex++);
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        //超过5 bytes, 非法格式
+        varIntIndex = -1;
+        return 0;
+    }
+
+    /**
+     * 重置状态, 并释放对composite metadata的引用
+     */
+    public void clear() {
+        compositeByteBuf = null;
+        binaryRouting = false;
+        serviceId = 0;
+        handlerId = 0;
+        flagsIndex = 0;
+        flagSize = 0;
+        handlerIndex = 0;
+        handlerLength = 0;
+        messageMimeTypeId = UNKNOWN_MIME_TYPE_ID;
+        customMessageMimeType = false;
+        acceptMimeTypesIndex = -1;
+        acceptMimeTypesLength = 0;
+        tracingIndex = -1;
+        tracingLength = 0;
+        cacheControlIndex = -1;
+        batch = false;
+        varIntIndex = 0;
+    }
+
+    /**
+     * @return 指定plot的flag
+     */
+    public boolean getFlag(int plot) {
+        if (plot < 0 || plot >= flagSize) {
+            return false;
+        }
+        return compositeByteBuf.getBoolean(flagsIndex + plot);
+    }
+
+    /**
+     * @return 是否sticky
+     */
+    public boolean isSticky() {
+        return getFlag(STICKY_PLOT);
+    }
+
+    /**
+     * 解码route key里面的handler, 用于metrics
+     * 注意, 会创建{@link String}实例
+     */
+    public String getHandler() {
+        if (!binaryRouting) {
+            return null;
+        }
+        return compositeByteBuf.toString(handlerIndex, handlerLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return composite metadata是否包含{@link MessageMimeTypeMetadata}
+     */
+    public boolean containsMessageMimeType() {
+        return messageMimeTypeId != UNKNOWN_MIME_TYPE_ID;
+    }
+
+    /**
+     * @return {@link MessageMimeTypeMetadata}对应的{@link RSocketMimeType}, 没有则返回null
+     */
+    public RSocketMimeType getMessageMimeType() {
+        if (!containsMessageMimeType()) {
+            return null;
+        }
+        return RSocketMimeType.getById(messageMimeTypeId);
+    }
+
+    /**
+     * @return composite metadata是否包含非well known mime type的{@link MessageMimeTypeMetadata}
+     */
+    public boolean containsCustomMessageMimeType() {
+        return customMessageMimeType;
+    }
+
+    /**
+     * 解析{@link MessageAcceptMimeTypesMetadata}, 没有则返回null
+     * 注意, 会创建{@link MessageAcceptMimeTypesMetadata}实例, 仅在需要时调用
+     */
+    public MessageAcceptMimeTypesMetadata getAcceptMimeTypesMetadata() {
+        if (acceptMimeTypesIndex < 0) {
+            return null;
+        }
+        return MessageAcceptMimeTypesMetadata.from(compositeByteBuf.slice(acceptMimeTypesIndex, acceptMimeTypesLength));
+    }
+
+    /**
+     * 解析{@link TracingMetadata}, 没有则返回null
+     * 注意, 会创建{@link TracingMetadata}实例, 仅在需要时调用
+     */
+    public TracingMetadata getTracingMetadata() {
+        if (tracingIndex < 0) {
+            return null;
+        }
+        return TracingMetadata.from(compositeByteBuf.slice(tracingIndex, tracingLength));
+    }
+
+    /**
+     * @return {@link CacheControlMetadata#getMaxAge()}, 没有则返回-1
+     */
+    public long getCacheControlMaxAge() {
+        if (cacheControlIndex < 0) {
+            return -1;
+        }
+        return compositeByteBuf.getLong(cacheControlIndex);
+    }
+
+    /**
+     * 转换成{@link GSVRoutingMetadata}, 但实例会缺失部分服务信息细节
+     */
+    public GSVRoutingMetadata toGSVRoutingMetadata() {
+        return GSVRoutingMetadata.from(serviceId, handlerId, isSticky());
+    }
+
+    //getter
+    public boolean isBinaryRouting() {
+        return binaryRouting;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public int getHandlerId() {
+        return handlerId;
+    }
+
+    public byte getMessageMimeTypeId() {
+        return messageMimeTypeId;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+}
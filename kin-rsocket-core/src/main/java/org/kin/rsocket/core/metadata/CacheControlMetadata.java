@@ -5,16 +5,20 @@ import io.netty.buffer.PooledByteBufAllocator;
 import org.kin.rsocket.core.RSocketMimeType;
 
 /**
+ * 结果缓存有效时间
+ * <p>
+ * 使用相对时间(毫秒), 由接收方以自身时钟计算过期时间, 避免不同主机时钟偏差导致缓存提前失效或者过期后仍有效
+ *
  * @author huangjianqin
  * @date 2021/3/24
  */
 public final class CacheControlMetadata implements MetadataAware {
-    /** expired timestamp */
-    private long expiredAt;
+    /** 缓存有效时间(毫秒) */
+    private long maxAge;
 
-    public static CacheControlMetadata from(long expiredAt) {
+    public static CacheControlMetadata from(long maxAge) {
         CacheControlMetadata metadata = new CacheControlMetadata();
-        metadata.expiredAt = expiredAt;
+        metadata.maxAge = maxAge;
         return metadata;
     }
 
@@ -35,19 +39,19 @@ public final class CacheControlMetadata implements MetadataAware {
     @Override
     public ByteBuf getContent() {
         ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(8);
-        byteBuf.writeLong(expiredAt);
+        byteBuf.writeLong(maxAge);
         return byteBuf;
     }
 
     @Override
     public void load(ByteBuf byteBuf) {
-        this.expiredAt = byteBuf.readLong();
+        this.maxAge = byteBuf.readLong();
     }
 
     //getter
 
-    public long getExpiredAt() {
-        return expiredAt;
+    public long getMaxAge() {
+        return maxAge;
     }
 }
 
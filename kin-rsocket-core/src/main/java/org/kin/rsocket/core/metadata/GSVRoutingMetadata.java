@@ -85,10 +85,18 @@ public final class GSVRoutingMetadata implements MetadataAware {
      * 只用于broker寻找目标rsocket service时使用
      */
     public static GSVRoutingMetadata from(BinaryRoutingMetadata binaryRoutingMetadata) {
+        return from(binaryRoutingMetadata.getServiceId(), binaryRoutingMetadata.getHandlerId(), binaryRoutingMetadata.isSticky());
+    }
+
+    /**
+     * 根据快速路由信息构建{@link GSVRoutingMetadata}, 但实例会缺失部分服务信息细节
+     * 只用于broker寻找目标rsocket service时使用
+     */
+    public static GSVRoutingMetadata from(int serviceId, int handlerId, boolean sticky) {
         GSVRoutingMetadata metadata = new GSVRoutingMetadata();
-        metadata.serviceId = binaryRoutingMetadata.getServiceId();
-        metadata.handlerId = binaryRoutingMetadata.getHandlerId();
-        metadata.sticky = binaryRoutingMetadata.isSticky();
+        metadata.serviceId = serviceId;
+        metadata.handlerId = handlerId;
+        metadata.sticky = sticky;
         return metadata;
     }
 
@@ -202,7 +210,7 @@ public final class GSVRoutingMetadata implements MetadataAware {
      * @return service id
      */
     public int serviceId() {
-        if (serviceId <= 0) {
+        if (serviceId == 0) {
             serviceId = ServiceLocator.serviceId(gsv());
         }
         return serviceId;
@@ -223,7 +231,7 @@ public final class GSVRoutingMetadata implements MetadataAware {
      * @return handler id
      */
     public Integer handlerId() {
-        if (handlerId <= 0) {
+        if (handlerId == 0) {
             handlerId = MurmurHash3.hash32(service + Separators.SERVICE_HANDLER + handler);
         }
         return handlerId;
@@ -33,6 +33,7 @@ final class MetadataAwares {
         map.put(RSocketMimeType.COMPOSITE_METADATA, new MetadataAwareMetadata(RSocketCompositeMetadata.class, RSocketCompositeMetadata::from));
         map.put(RSocketMimeType.MESSAGE_TAGS, new MetadataAwareMetadata(MessageTagsMetadata.class, MessageTagsMetadata::from));
         map.put(RSocketMimeType.MESSAGE_ORIGIN, new MetadataAwareMetadata(OriginMetadata.class, OriginMetadata::from));
+        map.put(RSocketMimeType.BATCH, new MetadataAwareMetadata(BatchMetadata.class, BatchMetadata::from));
 
         TYPE_2_METADATA_AWARE_METADATA = map;
     }
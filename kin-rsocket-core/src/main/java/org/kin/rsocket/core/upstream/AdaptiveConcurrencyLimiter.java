@@ -0,0 +1,185 @@
+package org.kin.rsocket.core.upstream;
+
+import io.micrometer.core.instrument.*;
+import io.rsocket.exceptions.ApplicationErrorException;
+import org.kin.rsocket.core.MetricsNames;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * requester端, 单个upstream rsocket某服务的自适应并发度限制
+ * <p>
+ * 基于gradient算法: 以rtt长期均值作为无负载rtt, 与当前请求rtt比较, 得到梯度(0.5~1.0),
+ * 请求rtt明显变长, 即upstream开始排队时, 按梯度收缩limit, 否则以sqrt(limit)作为可排队数量缓慢增大limit.
+ * 请求失败(非业务异常)或被取消(一般是超时), 则按比例收缩limit.
+ * 在途请求数达到limit时, 直接拒绝, 由调用方选择其他upstream rsocket或者快速失败, 而不是无限堆积直至超时
+ *
+ * @author huangjianqin
+ * @date 2022/3/12
+ */
+public final class AdaptiveConcurrencyLimiter {
+    /** 初始limit */
+    private static final int INITIAL_LIMIT = 20;
+    /** 最小limit */
+    private static final int MIN_LIMIT = 4;
+    /** 最大limit */
+    private static final int MAX_LIMIT = 1000;
+    /** 每次调整limit的平滑系数 */
+    private static final double SMOOTHING = 0.2;
+    /** rtt容忍度, 请求rtt不超过长期均值的1.5倍时, 不收缩limit */
+    private static final double RTT_TOLERANCE = 1.5;
+    /** rtt长期均值的样本窗口 */
+    private static final int LONG_RTT_WINDOW = 600;
+    /** 请求失败时limit收缩比例 */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /** 在途请求数 */
+    private final AtomicInteger inflight = new AtomicInteger();
+    /** 当前limit */
+    private volatile int limit = INITIAL_LIMIT;
+    /** limit估算值, 仅在{@link #update(long, int, boolean)}中访问 */
+    private double estimatedLimit = INITIAL_LIMIT;
+    /** rtt长期均值(纳秒), 仅在{@link #update(long, int, boolean)}中访问 */
+    private double longRtt;
+    /** 拒绝次数 */
+    private final Counter rejectedCounter;
+    /** 注册的metrics, 关闭时移除 */
+    private final List<Meter> meters;
+
+    /**
+     * @param service  服务gsv
+     * @param upstream upstream rsocket uri
+     */
+    public AdaptiveConcurrencyLimiter(String service, String upstream) {
+        Tags tags = Tags.of("service", service, "upstream", upstream);
+        this.rejectedCounter = Metrics.counter(MetricsNames.RSOCKET_UPSTREAM_REJECTED_COUNT, tags);
+        Gauge limitGauge = Gauge.builder(MetricsNames.RSOCKET_UPSTREAM_LIMIT_NUM, this, AdaptiveConcurrencyLimiter::getLimit)
+                .tags(tags)
+                .register(Metrics.globalRegistry);
+        Gauge inflightGauge = Gauge.builder(MetricsNames.RSOCKET_UPSTREAM_INFLIGHT_NUM, this, AdaptiveConcurrencyLimiter::getInflight)
+                .tags(tags)
+                .register(Metrics.globalRegistry);
+        this.meters = Arrays.asList(rejectedCounter, limitGauge, inflightGauge);
+    }
+
+    /**
+     * @return 是否仍有空闲并发度, 仅用于选择upstream rsocket, 不占用并发度
+     */
+    public boolean hasCapacity() {
+        return inflight.get() < limit;
+    }
+
+    /**
+     * 尝试占用并发度, 成功后, 请求结束时必须调用{@link #onSuccess(long)}, {@link #onError(long, Throwable)}, {@link #onDropped()}或者{@link #onIgnore()}其中之一
+     *
+     * @return 是否占用成功
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejectedCounter.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求成功
+     *
+     * @param startNanos 请求开始时间
+     */
+    public void onSuccess(long startNanos) {
+        int current = inflight.getAndDecrement();
+        update(System.nanoTime() - startNanos, current, false);
+    }
+
+    /**
+     * 请求失败, 业务异常仍视为正常rtt样本, 其余视为upstream过载
+     *
+     * @param startNanos 请求开始时间
+     */
+    public void onError(long startNanos, Throwable error) {
+        if (error instanceof ApplicationErrorException) {
+            onSuccess(startNanos);
+        } else {
+            onDropped();
+        }
+    }
+
+    /**
+     * 请求因upstream过载而失败
+     */
+    public void onDropped() {
+        int current = inflight.getAndDecrement();
+        update(0, current, true);
+    }
+
+    /**
+     * 请求结束, 但不作为rtt样本, 比如request stream, 或者请求被取消(比如hedging中落败的请求)
+     */
+    public void onIgnore() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 根据请求结果调整limit
+     *
+     * @param rtt      请求rtt(纳秒)
+     * @param inflight 请求结束前的在途请求数
+     * @param dropped  是否失败
+     */
+    private synchronized void update(long rtt, int inflight, boolean dropped) {
+        double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit * BACKOFF_RATIO;
+        } else {
+            rtt = Math.max(rtt, 1);
+            if (longRtt <= 0) {
+                longRtt = rtt;
+            } else {
+                longRtt += (rtt - longRtt) / LONG_RTT_WINDOW;
+                if (longRtt / rtt > 2) {
+                    //负载下降, rtt长期均值快速回落
+                    longRtt *= 0.95;
+                }
+            }
+
+            if (inflight < estimatedLimit / 2) {
+                //远未达到limit, 样本不能反映upstream负载情况, 不调整, 避免limit无限增大
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        }
+
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        newLimit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, newLimit));
+        estimatedLimit = newLimit;
+        limit = (int) newLimit;
+    }
+
+    /**
+     * 移除metrics, upstream rsocket移除时调用
+     */
+    public void close() {
+        for (Meter meter : meters) {
+            Metrics.globalRegistry.remove(meter);
+        }
+    }
+
+    //getter
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
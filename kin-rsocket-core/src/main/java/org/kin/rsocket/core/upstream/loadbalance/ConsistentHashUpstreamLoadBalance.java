@@ -5,11 +5,12 @@ import io.rsocket.RSocket;
 import org.jctools.maps.NonBlockingHashMap;
 import org.kin.framework.utils.CollectionUtils;
 import org.kin.framework.utils.Extension;
+import org.kin.framework.utils.MurmurHash3;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.SortedMap;
 
 /**
  * @author huangjianqin
@@ -30,60 +31,136 @@ public class ConsistentHashUpstreamLoadBalance extends RoundRobinUpstreamLoadBal
             return null;
         }
 
-        int hashCode = rsockets.hashCode();
-        ConsistentHash consistentHash = consistentHashMap.computeIfAbsent(serviceId, k -> new ConsistentHash(rsockets, hashCode));
-        if (consistentHash.hashCode != hashCode) {
-            consistentHash = consistentHashMap.computeIfPresent(serviceId, (k, v) -> new ConsistentHash(rsockets, hashCode));
+        ConsistentHash consistentHash = consistentHashMap.get(serviceId);
+        if (Objects.isNull(consistentHash) || !consistentHash.isSame(rsockets)) {
+            //upstream rsocket发生变化, 直接替换
+            consistentHash = new ConsistentHash(rsockets);
+            consistentHashMap.put(serviceId, consistentHash);
         }
 
-        if (Objects.isNull(consistentHash)) {
-            //兜底, 理论上不会到这里
-            return rsockets.get(0);
+        return consistentHash.get(murmurHash32(paramBytes));
+    }
+
+    /**
+     * 直接基于{@link ByteBuf}计算murmur3 32位hash, 不会复制bytes, 也不会修改reader index
+     */
+    private static int murmurHash32(ByteBuf byteBuf) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+
+        int index = byteBuf.readerIndex();
+        int length = byteBuf.readableBytes();
+        int roundedEnd = index + (length & 0xFFFFFFFC);
+        int h1 = 0;
+
+        for (int i = index; i < roundedEnd; i += 4) {
+            int k1 = byteBuf.getIntLE(i);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
         }
 
-        byte[] bytes = new byte[paramBytes.readableBytes()];
-        paramBytes.markReaderIndex();
-        paramBytes.readBytes(bytes);
-        RSocket target = consistentHash.get(bytes);
-        paramBytes.resetReaderIndex();
+        //剩余不足4 bytes
+        int k1 = 0;
+        switch (length & 0x03) {
+            case 3:
+                k1 = (byteBuf.getByte(roundedEnd + 2) & 0xff) << 16;
+            case 2:
+                k1 |= (byteBuf.getByte(roundedEnd + 1) & 0xff) << 8;
+            case 1:
+                k1 |= (byteBuf.getByte(roundedEnd) & 0xff);
+                k1 *= c1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= c2;
+                h1 ^= k1;
+        }
 
-        return target;
+        //finalization
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
     }
 
     /**
-     * 不可变hash环
+     * 不可变hash环, 节点hash值及其对应的rsocket以有序数组存储
      * 如果发现upstream rsocket发生变化时, 直接替换
      */
-    private static class ConsistentHash extends org.kin.framework.utils.ConsistentHash<RSocket> {
+    private static class ConsistentHash {
         /** hash环每个节点数量(含虚拟节点) */
         private static final int HASH_NODE_NUM = 128;
-        /** 标识该hash环对应的upstream rsocket, 用于判断upstream rsocket是否发生变化 */
-        private final int hashCode;
-
-        public ConsistentHash(List<RSocket> rsockets, int hashCode) {
-            super(HASH_NODE_NUM);
 
-            for (RSocket rsocket : rsockets) {
-                add(rsocket);
+        /** 构建该hash环的upstream rsocket, 用于判断upstream rsocket是否发生变化 */
+        private final List<RSocket> rsockets;
+        /** 升序排列的节点hash值 */
+        private final int[] hashes;
+        /** 与{@link #hashes}一一对应的rsocket */
+        private final RSocket[] nodes;
+
+        ConsistentHash(List<RSocket> rsockets) {
+            this.rsockets = rsockets;
+
+            //高32位为节点hash值, 低32位为rsocket下标, 排序后即按hash值升序
+            long[] slots = new long[rsockets.size() * HASH_NODE_NUM];
+            int slotIndex = 0;
+            for (int i = 0; i < rsockets.size(); i++) {
+                String prefix = rsockets.get(i).toString() + "#";
+                for (int j = 0; j < HASH_NODE_NUM; j++) {
+                    long hash = MurmurHash3.hash32(prefix + j);
+                    slots[slotIndex++] = (hash << 32) | i;
+                }
+            }
+            Arrays.sort(slots);
+
+            this.hashes = new int[slots.length];
+            this.nodes = new RSocket[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                long slot = slots[i];
+                hashes[i] = (int) (slot >> 32);
+                nodes[i] = rsockets.get((int) slot);
             }
-            this.hashCode = hashCode;
         }
 
-        @Override
-        protected void applySlot(SortedMap<Long, RSocket> circle, String s, RSocket node) {
-            if (hashCode == 0) {
-                //初始化
-                super.applySlot(circle, s, node);
-                return;
+        /**
+         * upstream rsocket是否没有变化
+         * {@link org.kin.rsocket.core.LoadBalanceRSocketRequester}仅在连接建立或断开时才会重建rsocket列表, 故一般直接比较引用即可
+         */
+        boolean isSame(List<RSocket> rsockets) {
+            if (this.rsockets == rsockets) {
+                return true;
             }
-
-            throw new UnsupportedOperationException();
+            int size = rsockets.size();
+            if (this.rsockets.size() != size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (this.rsockets.get(i) != rsockets.get(i)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        @Override
-        protected void removeSlot(SortedMap<Long, RSocket> circle, String s) {
-            throw new UnsupportedOperationException();
+        /**
+         * @return 顺时针方向第一个hash值大于等于{@code hash}的节点
+         */
+        RSocket get(int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+                if (index >= hashes.length) {
+                    //环
+                    index = 0;
+                }
+            }
+            return nodes[index];
         }
     }
-
 }
@@ -3,7 +3,10 @@ package org.kin.rsocket.core.utils;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.type.TypeFactory;
@@ -18,7 +21,7 @@ import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
 import org.checkerframework.checker.units.qual.C;
 import org.kin.framework.utils.ExceptionUtils;
-import org.kin.rsocket.core.codec.ObjectCodec;
+import org.kin.rsocket.core.codec.EncodeSizeHints;
 import org.kin.rsocket.core.codec.ObjectCodecException;
 
 import java.io.IOException;
@@ -26,6 +29,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author huangjianqin
@@ -35,8 +39,8 @@ public class JSON {
     /** 负责cloud event <-> json之间的转换 */
     private static final EventFormat EVENT_FORMAT = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
     private static final ObjectMapper PARSER = new ObjectMapper();
-    private static final TypeReference<List<JsonNode>> TYPE_JSON_NODE_LIST = new TypeReference<List<JsonNode>>() {
-    };
+    /** key -> 反序列化类型, value -> 对应的{@link ObjectReader}, {@link ObjectReader}是线程安全的 */
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
 
     static {
         PARSER.setTypeFactory(TypeFactory.defaultInstance());
@@ -221,12 +225,36 @@ public class JSON {
         return PARSER.convertValue(jsonObj, targetClass);
     }
 
+    /**
+     * @return 指定类型的{@link ObjectReader}, 缓存复用, 避免每次反序列化都查找deserializer
+     */
+    private static ObjectReader reader(Class<?> type) {
+        ObjectReader reader = READERS.get(type);
+        if (Objects.isNull(reader)) {
+            reader = READERS.computeIfAbsent(type, PARSER::readerFor);
+        }
+        return reader;
+    }
+
+    /**
+     * 基于{@link ByteBuf}创建{@link JsonParser}
+     * heap buffer直接解析底层数组, 不需要复制, 也不需要经过{@link InputStream}; direct buffer则经过{@link ByteBufInputStream}
+     */
+    private static JsonParser createParser(ByteBuf byteBuf) throws IOException {
+        JsonFactory factory = PARSER.getFactory();
+        if (byteBuf.hasArray()) {
+            return factory.createParser(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+        }
+        return factory.createParser((InputStream) new ByteBufInputStream(byteBuf));
+    }
+
     /**
      * 从json {@link ByteBuf} 转换成Obj
      */
+    @SuppressWarnings("unchecked")
     public static <T> T read(ByteBuf byteBuf, Class<T> type) {
-        try {
-            return PARSER.readValue((InputStream) new ByteBufInputStream(byteBuf), type);
+        try (JsonParser parser = createParser(byteBuf)) {
+            return (T) reader(type).readValue(parser);
         } catch (IOException e) {
             ExceptionUtils.throwExt(new ObjectCodecException(e.getMessage()));
         }
@@ -237,10 +265,13 @@ public class JSON {
      * 将Obj通过json序列化成{@link ByteBuf}
      */
     public static ByteBuf writeByteBuf(Object object) {
-        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(ObjectCodec.DEFAULT_BUFFER_SIZE);
+        //按该类型上次编码的字节数分配buffer, 减少扩容
+        Class<?> type = Objects.nonNull(object) ? object.getClass() : Object.class;
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(EncodeSizeHints.INSTANCE.sizeHint(type));
         try {
             ByteBufOutputStream bos = new ByteBufOutputStream(byteBuf);
             PARSER.writeValue((OutputStream) bos, object);
+            EncodeSizeHints.INSTANCE.record(type, byteBuf.readableBytes());
             return byteBuf;
         } catch (Exception e) {
             ReferenceCountUtil.safeRelease(byteBuf);
@@ -272,13 +303,21 @@ public class JSON {
     }
 
     /**
-     * 按数组形式读取json, 然后再根据指定class反序列每个item
+     * 按数组形式读取json, 流式遍历数组, 每个item直接根据指定class反序列化, 不会构建中间{@link JsonNode}
+     * json数组item数量少于指定class数量时, 缺省item为null, 多余的item则忽略
      */
     public static Object[] readJsonArray(ByteBuf byteBuf, Class<?>[] targetClasses) throws IOException {
         Object[] targets = new Object[targetClasses.length];
-        List<JsonNode> jsonNodes = PARSER.readValue(new ByteBufInputStream(byteBuf), TYPE_JSON_NODE_LIST);
-        for (int i = 0; i < targetClasses.length; i++) {
-            targets[i] = PARSER.treeToValue(jsonNodes.get(i), targetClasses[i]);
+        try (JsonParser parser = createParser(byteBuf)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ObjectCodecException("json array is expected, but actually " + parser.currentToken());
+            }
+            for (int i = 0; i < targetClasses.length; i++) {
+                if (parser.nextToken() == JsonToken.END_ARRAY) {
+                    break;
+                }
+                targets[i] = reader(targetClasses[i]).readValue(parser);
+            }
         }
         return targets;
     }
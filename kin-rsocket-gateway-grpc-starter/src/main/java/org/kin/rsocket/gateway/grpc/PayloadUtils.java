@@ -2,26 +2,22 @@ package org.kin.rsocket.gateway.grpc;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.Payload;
-import org.kin.framework.io.ByteBufferInputStream;
 import org.kin.framework.utils.ExceptionUtils;
 import org.kin.rsocket.core.RSocketMimeType;
 import org.kin.rsocket.core.metadata.MessageMimeTypeMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 
 import javax.annotation.Nullable;
-import java.io.InputStream;
-import java.lang.invoke.LambdaMetafactory;
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
-import java.lang.reflect.Method;
-import java.util.Objects;
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
-import java.util.function.Function;
 
 /**
  * @author huangjianqin
@@ -37,8 +33,8 @@ final class PayloadUtils {
         ReferenceCountUtil.safeRelease(byteBuf);
     }
 
-    /** {@link io.grpc.binarylog.v1.Message#parseDelimitedFrom(InputStream)} lambda代理 */
-    private static final Cache<Class<?>, Function<InputStream, Object>> PARSE_FROM_METHOD_CACHE = CacheBuilder.newBuilder().build();
+    /** protobuf message class -> 其{@link Parser} */
+    private static final Cache<Class<?>, Parser<?>> PARSER_CACHE = CacheBuilder.newBuilder().build();
 
     /**
      * 返回带有protobuf编码的CompositeMetadata bytebuf内容
@@ -47,40 +43,52 @@ final class PayloadUtils {
         return COMPOSITE_METADATA_WITH_ENCODING;
     }
 
+    /**
+     * 将protobuf message直接序列化到pooled {@link ByteBuf}, 不经过中间byte[]
+     */
+    static ByteBuf messageToByteBuf(MessageLite message) {
+        int size = message.getSerializedSize();
+        if (size == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(size, size);
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(byteBuf.internalNioBuffer(0, size));
+            message.writeTo(output);
+            output.checkNoSpaceLeft();
+            byteBuf.writerIndex(size);
+            return byteBuf;
+        } catch (IOException e) {
+            ReferenceCountUtil.safeRelease(byteBuf);
+            throw new IllegalStateException(String.format("serialize protobuf message '%s' error", message.getClass().getName()), e);
+        }
+    }
+
     /**
      * 根据返回值类型{@code responseClass}将{@code payload}反序列化为java实例
+     * 直接使用{@code responseClass}的{@link Parser}解析payload data, 不复制bytes
      */
     @SuppressWarnings("unchecked")
     @Nullable
     static <T> T payloadToResponseObject(Payload payload, Class<T> responseClass) {
         try {
-            Function<InputStream, Object> parseFrom = null;
+            Parser<?> parser = null;
             try {
-                parseFrom = PARSE_FROM_METHOD_CACHE.get(responseClass, () -> {
-                    Method method = responseClass.getMethod("parseDelimitedFrom", InputStream.class);
-                    MethodHandles.Lookup lookup = MethodHandles.lookup();
-                    MethodHandle methodHandle = lookup.unreflect(method);
-                    MethodType methodType = methodHandle.type();
-                    try {
-                        return (Function<InputStream, Object>) LambdaMetafactory.metafactory(lookup, "apply",
-                                        MethodType.methodType(Function.class), methodType.generic(), methodHandle, methodType)
-                                .getTarget()
-                                .invoke();
-                    } catch (Throwable e) {
-                        ExceptionUtils.throwExt(e);
-                    }
-                    //原则上不会到这里
-                    return null;
-                });
+                //protobuf生成的message类都有static parser()方法
+                parser = PARSER_CACHE.get(responseClass, () -> (Parser<?>) responseClass.getMethod("parser").invoke(null));
             } catch (ExecutionException e) {
                 ExceptionUtils.throwExt(e);
             }
 
-            if (Objects.isNull(parseFrom)) {
-                return null;
+            ByteBuf data = payload.data();
+            if (data.hasArray()) {
+                return (T) parser.parseFrom(data.array(), data.arrayOffset() + data.readerIndex(), data.readableBytes());
             }
-
-            return (T) parseFrom.apply(new ByteBufferInputStream(payload.data().nioBuffer()));
+            return (T) parser.parseFrom(data.nioBuffer());
+        } catch (IOException e) {
+            ExceptionUtils.throwExt(e);
+            //原则上不会到这里
+            return null;
         } finally {
             ReferenceCountUtil.safeRelease(payload);
         }
@@ -101,19 +101,13 @@ public final class ReactiveGrpcCallInterceptor {
             //request response
             Mono<GeneratedMessageV3> monoParam = (Mono<GeneratedMessageV3>) params[0];
             return monoParam
-                    .map(param -> {
-                        byte[] bytes = param.toByteArray();
-                        return PooledByteBufAllocator.DEFAULT.buffer(bytes.length).writeBytes(bytes);
-                    })
+                    .map(PayloadUtils::messageToByteBuf)
                     .flatMap(paramBodyBytes -> rsocketRpc(requester, methodMetadata, paramBodyBytes));
         } else if (methodMetadata.getRpcType().equals(ReactiveGrpcMethodMetadata.SERVER_STREAMING)) {
             //request stream
             Mono<GeneratedMessageV3> monoParam = (Mono<GeneratedMessageV3>) params[0];
             return monoParam
-                    .map(param -> {
-                        byte[] bytes = param.toByteArray();
-                        return PooledByteBufAllocator.DEFAULT.buffer(bytes.length).writeBytes(bytes);
-                    })
+                    .map(PayloadUtils::messageToByteBuf)
                     .flatMapMany(paramBodyBytes -> rsocketStream(requester, methodMetadata, paramBodyBytes));
         } else if (methodMetadata.getRpcType().equals(ReactiveGrpcMethodMetadata.CLIENT_STREAMING) ||
                 methodMetadata.getRpcType().equals(ReactiveGrpcMethodMetadata.BIDIRECTIONAL_STREAMING)) {
@@ -121,11 +115,8 @@ public final class ReactiveGrpcCallInterceptor {
 
             //param flux
             Flux<Payload> paramsPayloadFlux = ((Flux<GeneratedMessageV3>) params[0])
-                    .map(param -> {
-                        byte[] bytes = param.toByteArray();
-                        return ByteBufPayload.create(PooledByteBufAllocator.DEFAULT.buffer(bytes.length).writeBytes(bytes),
-                                PayloadUtils.getCompositeMetaDataWithEncoding());
-                    });
+                    .map(param -> ByteBufPayload.create(PayloadUtils.messageToByteBuf(param),
+                            PayloadUtils.getCompositeMetaDataWithEncoding()));
             Flux<?> responseFlux = rsocketChannel(requester, methodMetadata, paramsPayloadFlux);
             if (methodMetadata.getRpcType().equals(ReactiveGrpcMethodMetadata.CLIENT_STREAMING)) {
                 //return one
@@ -1,23 +1,42 @@
 package org.kin.rsocket.gateway.http;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.Payload;
 import io.rsocket.util.ByteBufPayload;
 import org.kin.rsocket.auth.AuthenticationService;
 import org.kin.rsocket.core.RSocketMimeType;
+import org.kin.rsocket.core.metadata.BinaryRoutingMetadata;
 import org.kin.rsocket.core.metadata.GSVRoutingMetadata;
 import org.kin.rsocket.core.metadata.MessageMimeTypeMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 import org.kin.rsocket.service.UpstreamClusterManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 
 /**
+ * 根据请求头选择rsocket请求方式:
+ * 1. 默认request response, 返回json
+ * 2. Accept为application/x-ndjson, 则request stream, 每个元素以json返回, 并以换行符分隔
+ * 3. Accept为text/event-stream, 则request stream, 每个元素作为一个server sent event返回
+ * 4. Prefer为respond-async, 则fire and forget, 直接返回202
+ * <p>
+ * stream模式下, 元素是边接收边写出, http response的背压会传递给rsocket request(n)
+ *
  * @author huangjianqin
  * @date 2021/4/20
  */
@@ -25,6 +44,12 @@ import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 @RequestMapping("/api")
 public class HttpGatewayController {
     private static final MessageMimeTypeMetadata JSON_ENCODING_MIME_TYPE = MessageMimeTypeMetadata.from(RSocketMimeType.JSON);
+    /** 请求fire and forget的{@link HttpHeaders}Prefer值 */
+    private static final String PREFER_RESPOND_ASYNC = "respond-async";
+    /** ndjson元素分隔符 */
+    private static final ByteBuf NDJSON_DELIMITER = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("\n", CharsetUtil.UTF_8));
+    /** 缓存的请求composite metadata数量上限 */
+    private static final int MAX_ROUTES = 10000;
 
     /**
      * gateway的token校验
@@ -36,6 +61,11 @@ public class HttpGatewayController {
     /** broker upstream cluster */
     @Autowired
     private UpstreamClusterManager upstreamClusterManager;
+    /**
+     * key -> group, service, method, version, value -> 请求composite metadata bytes, 包含binary routing, 使broker可以快速路由
+     * 淘汰时不需要释放, 因为是unpooled heap buffer, 交由gc回收即可, 同时也避免释放正在使用的bytes
+     */
+    private final Cache<ApiRouteKey, ByteBuf> compositeMetadatas = CacheBuilder.newBuilder().maximumSize(MAX_ROUTES).build();
 
     @RequestMapping(value = "/{service}/{method}", produces = {MediaType.APPLICATION_JSON_VALUE})
     public Mono<ResponseEntity<ByteBuf>> handle(@PathVariable("service") String service,
@@ -43,21 +73,20 @@ public class HttpGatewayController {
                                                 @RequestParam(name = "group", required = false, defaultValue = "") String group,
                                                 @RequestParam(name = "version", required = false, defaultValue = "") String version,
                                                 @RequestBody(required = false) ByteBuf body,
-                                                @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token) {
-        boolean authenticated;
-        if (!config.isRestApiAuth()) {
-            authenticated = true;
-        } else {
-            authenticated = Objects.nonNull(authenticationService.auth(token));
-        }
-        if (!authenticated) {
+                                                @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token,
+                                                @RequestHeader(name = "Prefer", required = false, defaultValue = "") String prefer) {
+        if (!authenticated(token)) {
+            ReferenceCountUtil.safeRelease(body);
             return Mono.error(new Exception("Failed to validate JWT token, please supply correct token."));
         }
         try {
-            GSVRoutingMetadata routingMetadata = GSVRoutingMetadata.from(group, service, method, version);
-            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(routingMetadata, JSON_ENCODING_MIME_TYPE);
-            ByteBuf bodyBuf = body == null ? EMPTY_BUFFER : body;
-            return upstreamClusterManager.getBroker().requestResponse(ByteBufPayload.create(bodyBuf, compositeMetadata.getContent()))
+            Payload requestPayload = requestPayload(group, service, method, version, body);
+            if (PREFER_RESPOND_ASYNC.equalsIgnoreCase(prefer.trim())) {
+                //fire and forget
+                return upstreamClusterManager.getBroker().fireAndForget(requestPayload)
+                        .then(Mono.fromSupplier(() -> new ResponseEntity<>(HttpStatus.ACCEPTED)));
+            }
+            return upstreamClusterManager.getBroker().requestResponse(requestPayload)
                     .map(payload -> {
                         HttpHeaders headers = new HttpHeaders();
                         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -68,4 +97,132 @@ public class HttpGatewayController {
             return Mono.error(e);
         }
     }
+
+    /**
+     * request stream, 以ndjson返回
+     */
+    @RequestMapping(value = "/{service}/{method}", produces = {MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ByteBuf> handleNdjsonStream(@PathVariable("service") String service,
+                                            @PathVariable("method") String method,
+                                            @RequestParam(name = "group", required = false, defaultValue = "") String group,
+                                            @RequestParam(name = "version", required = false, defaultValue = "") String version,
+                                            @RequestBody(required = false) ByteBuf body,
+                                            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token) {
+        return requestStream(group, service, method, version, body, token)
+                .map(payload -> {
+                    try {
+                        //不复制元素bytes
+                        return Unpooled.wrappedBuffer(payload.data().retain(), NDJSON_DELIMITER.duplicate());
+                    } finally {
+                        ReferenceCountUtil.safeRelease(payload);
+                    }
+                });
+    }
+
+    /**
+     * request stream, 以server sent event返回
+     */
+    @RequestMapping(value = "/{service}/{method}", produces = {MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<ServerSentEvent<String>> handleEventStream(@PathVariable("service") String service,
+                                                           @PathVariable("method") String method,
+                                                           @RequestParam(name = "group", required = false, defaultValue = "") String group,
+                                                           @RequestParam(name = "version", required = false, defaultValue = "") String version,
+                                                           @RequestBody(required = false) ByteBuf body,
+                                                           @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false, defaultValue = "") String token) {
+        return requestStream(group, service, method, version, body, token)
+                .map(payload -> {
+                    try {
+                        return ServerSentEvent.builder(payload.getDataUtf8()).build();
+                    } finally {
+                        ReferenceCountUtil.safeRelease(payload);
+                    }
+                });
+    }
+
+    /**
+     * 发起request stream请求
+     */
+    private Flux<Payload> requestStream(String group, String service, String method, String version, ByteBuf body, String token) {
+        if (!authenticated(token)) {
+            ReferenceCountUtil.safeRelease(body);
+            return Flux.error(new Exception("Failed to validate JWT token, please supply correct token."));
+        }
+        try {
+            return upstreamClusterManager.getBroker().requestStream(requestPayload(group, service, method, version, body));
+        } catch (Exception e) {
+            return Flux.error(e);
+        }
+    }
+
+    /**
+     * @return token是否校验通过
+     */
+    private boolean authenticated(String token) {
+        if (!config.isRestApiAuth()) {
+            return true;
+        }
+        return Objects.nonNull(authenticationService.auth(token));
+    }
+
+    /**
+     * 构建rsocket请求payload, data直接使用http request body
+     */
+    private Payload requestPayload(String group, String service, String method, String version, ByteBuf body) throws ExecutionException {
+        ByteBuf compositeMetadataBytes = compositeMetadatas.get(new ApiRouteKey(group, service, method, version), () -> compositeMetadataBytes(group, service, method, version));
+        ByteBuf bodyBuf = body == null ? EMPTY_BUFFER : body;
+        return ByteBufPayload.create(bodyBuf, compositeMetadataBytes.retainedDuplicate());
+    }
+
+    /**
+     * 构建请求composite metadata bytes, 与requester一致, 首个entry为{@link BinaryRoutingMetadata}
+     */
+    private static ByteBuf compositeMetadataBytes(String group, String service, String method, String version) {
+        GSVRoutingMetadata routingMetadata = GSVRoutingMetadata.from(group, service, method, version);
+        RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(routingMetadata, JSON_ENCODING_MIME_TYPE);
+        CompositeByteBuf compositeMetadataBytes = (CompositeByteBuf) compositeMetadata.getContent();
+        //add BinaryRoutingMetadata as first
+        compositeMetadataBytes.addComponent(true, 0, BinaryRoutingMetadata.from(routingMetadata).getHeaderAndContent());
+        try {
+            return Unpooled.copiedBuffer(compositeMetadataBytes);
+        } finally {
+            ReferenceCountUtil.safeRelease(compositeMetadataBytes);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * composite metadata缓存key, 字段分开比较, 避免拼接字符串后不同的group, service, method, version组合产生相同的key
+     */
+    private static final class ApiRouteKey {
+        private final String group;
+        private final String service;
+        private final String method;
+        private final String version;
+
+        private ApiRouteKey(String group, String service, String method, String version) {
+            this.group = group;
+            this.service = service;
+            this.method = method;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ApiRouteKey)) {
+                return false;
+            }
+            ApiRouteKey that = (ApiRouteKey) o;
+            return group.equals(that.group) && service.equals(that.service) &&
+                    method.equals(that.method) && version.equals(that.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(group, service, method, version);
+        }
+    }
 }
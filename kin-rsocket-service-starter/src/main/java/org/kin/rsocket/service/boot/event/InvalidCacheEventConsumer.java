@@ -3,6 +3,7 @@ package org.kin.rsocket.service.boot.event;
 import io.cloudevents.CloudEvent;
 import org.kin.rsocket.core.event.AbstractCloudEventConsumer;
 import org.kin.rsocket.core.event.CacheInvalidEvent;
+import org.kin.rsocket.service.RequesterCaches;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -11,7 +12,7 @@ import java.util.Objects;
 
 /**
  * 处理{@link CacheInvalidEvent}事件
- * clean spring cache
+ * clean spring cache及requester端服务方法结果缓存
  *
  * @author huangjianqin
  * @date 2021/3/28
@@ -22,6 +23,8 @@ public final class InvalidCacheEventConsumer extends AbstractCloudEventConsumer<
 
     @Override
     public void consume(CloudEvent cloudEvent, CacheInvalidEvent event) {
+        RequesterCaches.INSTANCE.invalidate(event.getKeys());
+
         if (Objects.isNull(cacheManager)) {
             return;
         }
@@ -29,6 +32,10 @@ public final class InvalidCacheEventConsumer extends AbstractCloudEventConsumer<
         event.getKeys().forEach(key -> {
             //cache name:key
             String[] parts = key.split(":", 2);
+            if (parts.length < 2) {
+                //仅用于requester端服务方法结果缓存失效
+                return;
+            }
 
             Cache cache = cacheManager.getCache(parts[0]);
             if (cache != null) {
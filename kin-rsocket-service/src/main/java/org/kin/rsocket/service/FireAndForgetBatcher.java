@@ -0,0 +1,96 @@
+package org.kin.rsocket.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import org.kin.rsocket.core.FireAndForgetBatch;
+import org.kin.rsocket.core.metadata.BatchMetadata;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 单个fire and forget服务方法的批量发送器, 累积方法参数bytes, 达到数量上限或者等待超时后合并成一个payload data发送
+ * <p>
+ * payload data格式参考{@link BatchMetadata}, 参数bytes以{@link CompositeByteBuf}组合, 不会复制.
+ * {@link BatchMetadata}的mime type(0x59)是本项目扩展的, 旧版本responder无法识别, 故开启批量发送前需先升级所有responder
+ * <p>
+ * requester关闭前会通过{@link FireAndForgetBatchers#flush()}发送所有待发送的调用
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ * @see FireAndForgetBatch
+ */
+final class FireAndForgetBatcher {
+    /** 单个batch最多包含的调用数 */
+    private final int maxSize;
+    /** 首个调用最长等待时间(纳秒) */
+    private final long maxDelayNanos;
+    /** 发送合并后的payload data */
+    private final Function<ByteBuf, Mono<Void>> sender;
+    /** 待发送的方法参数bytes */
+    private List<ByteBuf> pending;
+
+    FireAndForgetBatcher(FireAndForgetBatch batch, Function<ByteBuf, Mono<Void>> sender) {
+        this.maxSize = Math.max(batch.maxSize(), 1);
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(batch.maxDelayMicros(), 1));
+        this.sender = sender;
+        this.pending = new ArrayList<>(maxSize);
+    }
+
+    /**
+     * 添加一次调用的方法参数bytes
+     */
+    void add(ByteBuf paramBodyBytes) {
+        List<ByteBuf> batch = null;
+        boolean first;
+        synchronized (this) {
+            pending.add(paramBodyBytes);
+            first = pending.size() == 1;
+            if (pending.size() >= maxSize) {
+                batch = pending;
+                pending = new ArrayList<>(maxSize);
+            }
+        }
+
+        if (batch != null) {
+            send(batch).subscribe();
+        } else if (first) {
+            //首个调用才调度flush, 若届时已是新的batch, 仅会提前发送, 不会超过最长等待时间
+            Schedulers.parallel().schedule(() -> flush().subscribe(), maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 取出所有待发送的调用, 订阅返回的{@link Mono}后发送
+     */
+    Mono<Void> flush() {
+        List<ByteBuf> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return Mono.empty();
+            }
+            batch = pending;
+            pending = new ArrayList<>(maxSize);
+        }
+        return send(batch);
+    }
+
+    /**
+     * 合并成一个payload data, 订阅返回的{@link Mono}后发送
+     */
+    private Mono<Void> send(List<ByteBuf> batch) {
+        CompositeByteBuf data = ByteBufAllocator.DEFAULT.compositeBuffer(batch.size() * 2);
+        for (ByteBuf paramBodyBytes : batch) {
+            ByteBuf lengthBytes = ByteBufAllocator.DEFAULT.buffer(4, 4);
+            lengthBytes.writeInt(paramBodyBytes.readableBytes());
+            data.addComponent(true, lengthBytes);
+            data.addComponent(true, paramBodyBytes);
+        }
+        return sender.apply(data);
+    }
+}
@@ -0,0 +1,48 @@
+package org.kin.rsocket.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 管理所有fire and forget服务方法的批量发送器, 用于关闭前发送所有待发送的调用
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+final class FireAndForgetBatchers {
+    static final FireAndForgetBatchers INSTANCE = new FireAndForgetBatchers();
+
+    /** 所有批量发送器, 弱引用, 不影响requester proxy回收 */
+    private final Set<FireAndForgetBatcher> batchers = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private FireAndForgetBatchers() {
+    }
+
+    /**
+     * 注册批量发送器
+     */
+    void register(FireAndForgetBatcher batcher) {
+        batchers.add(batcher);
+    }
+
+    /**
+     * 发送所有批量发送器待发送的调用
+     *
+     * @return 所有待发送的调用发送完成后complete
+     */
+    Mono<Void> flush() {
+        List<Mono<Void>> flushes;
+        synchronized (batchers) {
+            flushes = new ArrayList<>(batchers.size());
+            for (FireAndForgetBatcher batcher : batchers) {
+                flushes.add(batcher.flush());
+            }
+        }
+        return Mono.whenDelayError(flushes);
+    }
+}
@@ -0,0 +1,74 @@
+package org.kin.rsocket.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.kin.rsocket.core.MetricsNames;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局request hedging预算, 限制hedge请求数量占开启hedging的请求数量的比例, 避免upstream变慢时, hedge请求进一步放大负载
+ * <p>
+ * 令牌桶实现, 每个请求存入{@link #RATIO}个令牌, 每个hedge请求消耗1个令牌
+ * 比例可通过-Dkin.rsocket.hedging.budget调整, 默认0.1, 即hedge请求最多额外增加10%的请求
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+final class HedgingBudget {
+    static final HedgingBudget INSTANCE = new HedgingBudget();
+
+    /** 令牌精度, 以整数存储令牌 */
+    private static final long UNIT = 1000;
+    /** 每个请求存入的令牌数 */
+    private static final double RATIO = Double.parseDouble(System.getProperty("kin.rsocket.hedging.budget", "0.1"));
+    /** 每个请求存入的令牌数(按精度换算后) */
+    private static final long DEPOSIT = (long) (RATIO * UNIT);
+    /** 令牌上限, 允许短时间内突发的hedge请求数 */
+    private static final long MAX_TOKENS = 100 * UNIT;
+
+    /** 当前令牌数 */
+    private final AtomicLong tokens = new AtomicLong();
+    /** hedge请求次数 */
+    private final Counter hedgedCounter = Metrics.counter(MetricsNames.RSOCKET_HEDGING_COUNT);
+    /** 因预算不足而放弃hedge请求的次数 */
+    private final Counter rejectedCounter = Metrics.counter(MetricsNames.RSOCKET_HEDGING_REJECTED_COUNT);
+
+    private HedgingBudget() {
+    }
+
+    /**
+     * 开启hedging的请求发送时调用, 存入令牌
+     */
+    void deposit() {
+        if (DEPOSIT <= 0) {
+            return;
+        }
+        for (; ; ) {
+            long current = tokens.get();
+            if (current >= MAX_TOKENS) {
+                return;
+            }
+            if (tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + DEPOSIT))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 是否允许发送hedge请求
+     */
+    boolean tryWithdraw() {
+        for (; ; ) {
+            long current = tokens.get();
+            if (current < UNIT) {
+                rejectedCounter.increment();
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - UNIT)) {
+                hedgedCounter.increment();
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.kin.rsocket.service;
+
+import org.kin.rsocket.core.Hedging;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单个服务方法的request hedging配置, 以及该方法请求耗时的分位数估算
+ * <p>
+ * 分位数基于frugal streaming算法估算, 只需O(1)空间, 且可快速跟随耗时分布变化
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ * @see Hedging
+ */
+final class HedgingPolicy {
+    /** 分位数估算所需最少样本数, 样本不足时不发送hedge请求 */
+    private static final int MIN_SAMPLES = 100;
+
+    /** 固定延迟(纳秒), 小于等于0则使用分位数 */
+    private final long delayNanos;
+    /** 延迟取历史请求耗时的分位数 */
+    private final double percentile;
+    /** 分位数估算值(微秒) */
+    private double estimate;
+    /** 估算值调整步长 */
+    private double step = 1;
+    /** 上次调整方向, 1为增大, -1为减小 */
+    private int sign;
+    /** 样本数 */
+    private long samples;
+
+    HedgingPolicy(int delayMillis, double percentile) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("hedging percentile must be in (0, 1)");
+        }
+        this.delayNanos = Duration.ofMillis(Math.max(delayMillis, 0)).toNanos();
+        this.percentile = percentile;
+    }
+
+    HedgingPolicy(Hedging hedging) {
+        this(hedging.delay(), hedging.percentile());
+    }
+
+    /**
+     * 复制配置, 但不复制耗时样本, 每个服务方法需独立估算
+     */
+    HedgingPolicy copy() {
+        return new HedgingPolicy((int) Duration.ofNanos(delayNanos).toMillis(), percentile);
+    }
+
+    /**
+     * @return 发送hedge请求前的延迟, 样本不足时返回null, 即不发送hedge请求
+     */
+    Duration hedgeDelay() {
+        if (delayNanos > 0) {
+            return Duration.ofNanos(delayNanos);
+        }
+        synchronized (this) {
+            if (samples < MIN_SAMPLES) {
+                return null;
+            }
+            return Duration.ofNanos((long) (estimate * 1000));
+        }
+    }
+
+    /**
+     * 记录请求耗时
+     */
+    void record(long elapsedNanos) {
+        if (delayNanos > 0) {
+            return;
+        }
+
+        //微秒
+        double x = elapsedNanos / 1000D;
+        double r = ThreadLocalRandom.current().nextDouble();
+        synchronized (this) {
+            if (samples++ == 0) {
+                estimate = x;
+                return;
+            }
+
+            if (x > estimate && r > 1 - percentile) {
+                step += sign > 0 ? 1 : -1;
+                estimate += step > 0 ? step : 1;
+                if (estimate > x) {
+                    step += x - estimate;
+                    estimate = x;
+                }
+                if (sign < 0 && step > 1) {
+                    step = 1;
+                }
+                sign = 1;
+            } else if (x < estimate && r > percentile) {
+                step += sign < 0 ? 1 : -1;
+                estimate -= step > 0 ? step : 1;
+                if (estimate < x) {
+                    step += estimate - x;
+                    estimate = x;
+                }
+                if (sign > 0 && step > 1) {
+                    step = 1;
+                }
+                sign = -1;
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -26,6 +27,8 @@ import java.util.stream.Collectors;
  */
 public final class RSocketBrokerClient implements UpstreamClusterManager {
     private static final Logger log = LoggerFactory.getLogger(RSocketBrokerClient.class);
+    /** 关闭前等待批量fire and forget调用发送完成的最长时间 */
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
 
     //状态-初始
     private static final int STATE_INIT = 0;
@@ -318,6 +321,12 @@ public final class RSocketBrokerClient implements UpstreamClusterManager {
             return;
         }
 
+        try {
+            //关闭连接前发送批量fire and forget服务方法待发送的调用, 避免丢失
+            FireAndForgetBatchers.INSTANCE.flush().block(FLUSH_TIMEOUT);
+        } catch (Exception e) {
+            log.warn("flush fire and forget batches error", e);
+        }
         upstreamClusterManager.dispose();
         if (Objects.nonNull(rsocketServer)) {
             rsocketServer.dispose();
@@ -9,9 +9,11 @@ import io.rsocket.ConnectionSetupPayload;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.exceptions.InvalidException;
+import org.kin.rsocket.core.LocalRSocketServiceRegistry;
 import org.kin.rsocket.core.RSocketAppContext;
 import org.kin.rsocket.core.RSocketMimeType;
 import org.kin.rsocket.core.RSocketRequestHandlerSupport;
+import org.kin.rsocket.core.ReactiveMethodInvoker;
 import org.kin.rsocket.core.event.CloudEventBus;
 import org.kin.rsocket.core.event.CloudEventSupport;
 import org.kin.rsocket.core.metadata.*;
@@ -23,6 +25,9 @@ import reactor.core.publisher.Mono;
 import reactor.util.context.Context;
 
 import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -35,6 +40,16 @@ import java.util.Objects;
 @SuppressWarnings({"rawtypes", "unchecked"})
 final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSupport {
     private static final Logger log = LoggerFactory.getLogger(RSocketBrokerOrServiceRequestHandler.class);
+    /** 快速路由时复用的{@link MessageMimeTypeMetadata}, 避免每个请求都创建 */
+    private static final Map<RSocketMimeType, MessageMimeTypeMetadata> MESSAGE_MIME_TYPE_METADATAS;
+
+    static {
+        Map<RSocketMimeType, MessageMimeTypeMetadata> messageMimeTypeMetadatas = new EnumMap<>(RSocketMimeType.class);
+        for (RSocketMimeType mimeType : RSocketMimeType.values()) {
+            messageMimeTypeMetadatas.put(mimeType, MessageMimeTypeMetadata.from(mimeType));
+        }
+        MESSAGE_MIME_TYPE_METADATAS = messageMimeTypeMetadatas;
+    }
 
     /** requester from peer */
     private final RSocket requester;
@@ -89,17 +104,9 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
     @Override
     public Mono<Payload> requestResponse(Payload payload) {
         try {
-            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
-            GSVRoutingMetadata routingMetaData = getGsvRoutingMetadata(compositeMetadata);
-            if (routingMetaData == null) {
-                throwNoRoutingDataError();
-            }
-            MessageMimeTypeMetadata dataEncodingMetadata = getDataEncodingMetadata(compositeMetadata);
-            if (dataEncodingMetadata == null) {
-                throwNoEncodingDataError();
-            }
-            Mono<Payload> payloadMono = localRequestResponse(routingMetaData, dataEncodingMetadata, compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_ACCEPT_MIME_TYPES), payload);
-            return injectTraceContext(payloadMono, compositeMetadata);
+            RequestMetadata requestMetadata = parseRequestMetadata(payload);
+            Mono<Payload> payloadMono = localRequestResponse(requestMetadata.routing, requestMetadata.dataEncoding, requestMetadata.acceptMimeTypes, payload);
+            return injectTraceContext(payloadMono, requestMetadata.tracing);
         } catch (Exception e) {
             ReferenceCountUtil.safeRelease(payload);
             return Mono.error(e);
@@ -110,17 +117,14 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
     @Override
     public Mono<Void> fireAndForget(Payload payload) {
         try {
-            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
-            GSVRoutingMetadata routingMetaData = getGsvRoutingMetadata(compositeMetadata);
-            if (routingMetaData == null) {
-                throwNoRoutingDataError();
-            }
-            MessageMimeTypeMetadata dataEncodingMetadata = getDataEncodingMetadata(compositeMetadata);
-            if (dataEncodingMetadata == null) {
-                throwNoEncodingDataError();
+            RequestMetadata requestMetadata = parseRequestMetadata(payload);
+            Mono<Void> voidMono;
+            if (requestMetadata.batch) {
+                voidMono = localBatchFireAndForget(requestMetadata.routing, requestMetadata.dataEncoding, payload);
+            } else {
+                voidMono = localFireAndForget(requestMetadata.routing, requestMetadata.dataEncoding, payload);
             }
-            Mono<Void> voidMono = localFireAndForget(routingMetaData, dataEncodingMetadata, payload);
-            return injectTraceContext(voidMono, compositeMetadata);
+            return injectTraceContext(voidMono, requestMetadata.tracing);
         } catch (Exception e) {
             ReferenceCountUtil.safeRelease(payload);
             return Mono.error(e);
@@ -131,17 +135,9 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
     @Override
     public Flux<Payload> requestStream(Payload payload) {
         try {
-            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
-            GSVRoutingMetadata routingMetaData = getGsvRoutingMetadata(compositeMetadata);
-            if (routingMetaData == null) {
-                throwNoRoutingDataError();
-            }
-            MessageMimeTypeMetadata dataEncodingMetadata = getDataEncodingMetadata(compositeMetadata);
-            if (dataEncodingMetadata == null) {
-                throwNoEncodingDataError();
-            }
-            Flux<Payload> payloadFlux = localRequestStream(routingMetaData, dataEncodingMetadata, compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_ACCEPT_MIME_TYPES), payload);
-            return injectTraceContext(payloadFlux, compositeMetadata);
+            RequestMetadata requestMetadata = parseRequestMetadata(payload);
+            Flux<Payload> payloadFlux = localRequestStream(requestMetadata.routing, requestMetadata.dataEncoding, requestMetadata.acceptMimeTypes, payload);
+            return injectTraceContext(payloadFlux, requestMetadata.tracing);
         } catch (Exception e) {
             ReferenceCountUtil.safeRelease(payload);
             return Flux.error(e);
@@ -150,18 +146,9 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
 
     private Flux<Payload> requestChannel(Payload signal, Flux<Payload> payloads) {
         try {
-            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(signal.metadata());
-            GSVRoutingMetadata routingMetaData = getGsvRoutingMetadata(compositeMetadata);
-            if (routingMetaData == null) {
-                throwNoRoutingDataError();
-            }
-            MessageMimeTypeMetadata dataEncodingMetadata = getDataEncodingMetadata(compositeMetadata);
-            if (dataEncodingMetadata == null) {
-                throwNoEncodingDataError();
-            }
-
-            return localRequestChannel(routingMetaData, dataEncodingMetadata,
-                    compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_ACCEPT_MIME_TYPES), signal,
+            RequestMetadata requestMetadata = parseRequestMetadata(signal);
+            return localRequestChannel(requestMetadata.routing, requestMetadata.dataEncoding,
+                    requestMetadata.acceptMimeTypes, signal,
                     payloads.skip(1));
         } catch (Exception e) {
             ReferenceCountUtil.safeRelease(signal);
@@ -202,6 +189,52 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
         return this.comboOnClose;
     }
 
+    /**
+     * 解析请求路由所需的metadata
+     * <p>
+     * 首个entry是{@link BinaryRoutingMetadata}且本地存在对应服务方法时, 直接根据handlerId路由,
+     * 不需要完整解析composite metadata, 也不需要解析{@link GSVRoutingMetadata}的routing key,
+     * accept mime types和tracing metadata仅在存在时才解析
+     * 否则, 完整解析composite metadata
+     */
+    private RequestMetadata parseRequestMetadata(Payload payload) throws InvalidException {
+        BinaryRoutingMetadataFlyweight flyweight = BinaryRoutingMetadataFlyweight.current();
+        try {
+            if (flyweight.wrap(payload.metadata()) && !flyweight.containsCustomMessageMimeType()) {
+                ReactiveMethodInvoker invoker = LocalRSocketServiceRegistry.INSTANCE.getInvoker(flyweight.getHandlerId());
+                RSocketMimeType messageMimeType = flyweight.getMessageMimeType();
+                if (Objects.nonNull(invoker) && (Objects.nonNull(messageMimeType) || !flyweight.containsMessageMimeType())) {
+                    GSVRoutingMetadata routing = flyweight.toGSVRoutingMetadata();
+                    //binary routing不带服务名, 仅用于log
+                    Method method = invoker.getMethod();
+                    routing.setService(method.getDeclaringClass().getName());
+                    routing.setHandler(method.getName());
+
+                    MessageMimeTypeMetadata dataEncodingMetadata = Objects.nonNull(messageMimeType) ?
+                            MESSAGE_MIME_TYPE_METADATAS.get(messageMimeType) : defaultMessageMimeTypeMetadata;
+                    TracingMetadata tracingMetadata = Objects.nonNull(tracer) ? flyweight.getTracingMetadata() : null;
+                    return new RequestMetadata(routing, dataEncodingMetadata, flyweight.getAcceptMimeTypesMetadata(), tracingMetadata, flyweight.isBatch());
+                }
+            }
+        } finally {
+            flyweight.clear();
+        }
+
+        RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
+        GSVRoutingMetadata routingMetaData = getGsvRoutingMetadata(compositeMetadata);
+        if (routingMetaData == null) {
+            throwNoRoutingDataError();
+        }
+        MessageMimeTypeMetadata dataEncodingMetadata = getDataEncodingMetadata(compositeMetadata);
+        if (dataEncodingMetadata == null) {
+            throwNoEncodingDataError();
+        }
+        TracingMetadata tracingMetadata = Objects.nonNull(tracer) ? compositeMetadata.getMetadata(RSocketMimeType.TRACING) : null;
+        return new RequestMetadata(routingMetaData, dataEncodingMetadata,
+                compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_ACCEPT_MIME_TYPES), tracingMetadata,
+                compositeMetadata.contains(RSocketMimeType.BATCH));
+    }
+
     /**
      * 解析并获取{@link MessageMimeTypeMetadata}
      */
@@ -236,9 +269,8 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
     /**
      * 给{@link Mono}context写入{@link TraceContext}
      */
-    private <T> Mono<T> injectTraceContext(Mono<T> payloadMono, RSocketCompositeMetadata compositeMetadata) {
+    private <T> Mono<T> injectTraceContext(Mono<T> payloadMono, TracingMetadata tracingMetadata) {
         if (Objects.nonNull(tracer)) {
-            TracingMetadata tracingMetadata = compositeMetadata.getMetadata(RSocketMimeType.TRACING);
             if (Objects.nonNull(tracingMetadata)) {
                 TraceContext traceContext = constructTraceContext(tracingMetadata);
                 Span span = tracer.newChild(traceContext);
@@ -254,9 +286,8 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
     /**
      * 给{@link Flux}context写入{@link TraceContext}
      */
-    private Flux<Payload> injectTraceContext(Flux<Payload> payloadFlux, RSocketCompositeMetadata compositeMetadata) {
+    private Flux<Payload> injectTraceContext(Flux<Payload> payloadFlux, TracingMetadata tracingMetadata) {
         if (Objects.nonNull(tracer)) {
-            TracingMetadata tracingMetadata = compositeMetadata.getMetadata(RSocketMimeType.TRACING);
             if (Objects.nonNull(tracingMetadata)) {
                 TraceContext traceContext = constructTraceContext(tracingMetadata);
                 Span span = tracer.newChild(traceContext);
@@ -268,4 +299,31 @@ final class RSocketBrokerOrServiceRequestHandler extends RSocketRequestHandlerSu
         }
         return payloadFlux;
     }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 请求路由所需的metadata
+     */
+    private static final class RequestMetadata {
+        /** 路由信息 */
+        private final GSVRoutingMetadata routing;
+        /** 请求数据编码类型 */
+        private final MessageMimeTypeMetadata dataEncoding;
+        /** 返回数据编码类型, 可能为null */
+        private final MessageAcceptMimeTypesMetadata acceptMimeTypes;
+        /** zipkin tracing, 可能为null */
+        private final TracingMetadata tracing;
+        /** 是否是批量请求, 即包含{@link org.kin.rsocket.core.metadata.BatchMetadata} */
+        private final boolean batch;
+
+        private RequestMetadata(GSVRoutingMetadata routing, MessageMimeTypeMetadata dataEncoding,
+                                MessageAcceptMimeTypesMetadata acceptMimeTypes, TracingMetadata tracing, boolean batch) {
+            this.routing = routing;
+            this.dataEncoding = dataEncoding;
+            this.acceptMimeTypes = acceptMimeTypes;
+            this.tracing = tracing;
+            this.batch = batch;
+        }
+    }
 }
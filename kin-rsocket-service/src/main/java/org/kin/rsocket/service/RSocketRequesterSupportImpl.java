@@ -142,6 +142,11 @@ public final class RSocketRequesterSupportImpl implements RSocketRequesterSuppor
         return builder.build();
     }
 
+    @Override
+    public boolean adaptiveConcurrencyLimit() {
+        return rsocketServiceProperties.isAdaptiveConcurrencyLimit();
+    }
+
     @Override
     public SocketAcceptor socketAcceptor() {
         return (setupPayload, requester) -> Mono.just(new RSocketBrokerOrServiceRequestHandler(requester, setupPayload, tracer));
@@ -44,6 +44,12 @@ public class RSocketServiceProperties {
     private String loadBalance;
     /** broker web host and port */
     private List<String> brokerWebHostPorts = Collections.emptyList();
+    /**
+     * 是否开启每个upstream rsocket的自适应并发度限制
+     *
+     * @see org.kin.rsocket.core.upstream.AdaptiveConcurrencyLimiter
+     */
+    private boolean adaptiveConcurrencyLimit;
 
     //setter && getter
     public String getSchema() {
@@ -143,6 +149,14 @@ public class RSocketServiceProperties {
         this.brokerWebHostPorts = brokerWebHostPorts;
     }
 
+    public boolean isAdaptiveConcurrencyLimit() {
+        return adaptiveConcurrencyLimit;
+    }
+
+    public void setAdaptiveConcurrencyLimit(boolean adaptiveConcurrencyLimit) {
+        this.adaptiveConcurrencyLimit = adaptiveConcurrencyLimit;
+    }
+
     //----------------------------------------------------------------------------------------------------------------------------------------
     public static Builder builder() {
         return new Builder();
@@ -229,6 +243,11 @@ public class RSocketServiceProperties {
             return brokers(Arrays.asList(brokerWebHostPorts));
         }
 
+        public Builder adaptiveConcurrencyLimit(boolean adaptiveConcurrencyLimit) {
+            rsocketServiceProperties.adaptiveConcurrencyLimit = adaptiveConcurrencyLimit;
+            return this;
+        }
+
         public RSocketServiceProperties build() {
             return rsocketServiceProperties;
         }
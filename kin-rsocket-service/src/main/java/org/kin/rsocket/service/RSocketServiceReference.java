@@ -108,4 +108,11 @@ public @interface RSocketServiceReference {
 
     /** consumer 是否开启p2p直连模式 */
     boolean p2p() default false;
+
+    /**
+     * consumer全部request response方法是否开启request hedging, 仅适用于幂等方法
+     *
+     * @see org.kin.rsocket.core.Hedging
+     */
+    boolean hedging() default false;
 }
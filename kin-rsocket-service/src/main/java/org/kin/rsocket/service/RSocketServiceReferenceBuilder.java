@@ -59,6 +59,8 @@ public final class RSocketServiceReferenceBuilder<T> {
     private boolean p2p;
     /** zipkin */
     private Tracing tracing;
+    /** 该consumer全部request response方法的request hedging配置, 未开启则为null */
+    private HedgingPolicy hedgingPolicy;
 
     private RSocketServiceReferenceBuilder() {
     }
@@ -124,6 +126,11 @@ public final class RSocketServiceReferenceBuilder<T> {
             builder.p2p();
         }
 
+        boolean hedging = annoAttrs.getBoolean("hedging");
+        if (hedging) {
+            builder.hedging();
+        }
+
         return builder;
     }
 
@@ -237,6 +244,31 @@ public final class RSocketServiceReferenceBuilder<T> {
         return this;
     }
 
+    /**
+     * 该consumer全部request response方法都开启request hedging, 延迟取历史请求耗时的p95
+     * 仅适用于幂等方法, 方法或服务接口上的{@link Hedging}优先
+     */
+    public RSocketServiceReferenceBuilder<T> hedging() {
+        return hedging(0.95);
+    }
+
+    /**
+     * 该consumer全部request response方法都开启request hedging, 延迟取历史请求耗时的指定分位数
+     */
+    public RSocketServiceReferenceBuilder<T> hedging(double percentile) {
+        this.hedgingPolicy = new HedgingPolicy(0, percentile);
+        return this;
+    }
+
+    /**
+     * 该consumer全部request response方法都开启request hedging, 固定延迟
+     */
+    public RSocketServiceReferenceBuilder<T> hedgingDelay(int millis) {
+        Preconditions.checkArgument(millis > 0);
+        this.hedgingPolicy = new HedgingPolicy(millis, 0.95);
+        return this;
+    }
+
     /**
      * 开启zipkin
      */
@@ -358,4 +390,8 @@ public final class RSocketServiceReferenceBuilder<T> {
     public Tracing getTracing() {
         return tracing;
     }
+
+    HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
 }
@@ -2,14 +2,22 @@ package org.kin.rsocket.service;
 
 import io.micrometer.core.instrument.Tag;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.frame.FrameType;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
 import org.kin.framework.utils.MurmurHash3;
 import org.kin.framework.utils.StringUtils;
+import org.kin.rsocket.core.FireAndForgetBatch;
+import org.kin.rsocket.core.Hedging;
 import org.kin.rsocket.core.RSocketMimeType;
 import org.kin.rsocket.core.ReactiveMethodSupport;
+import org.kin.rsocket.core.ResponseCache;
+import org.kin.rsocket.core.ServiceLocator;
+import org.kin.rsocket.core.SingleFlight;
 import org.kin.rsocket.core.metadata.*;
 import org.kin.rsocket.core.utils.Separators;
 import reactor.core.publisher.Flux;
@@ -19,6 +27,8 @@ import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * 服务接口方法元数据
@@ -51,6 +61,18 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
     private boolean monoChannel = false;
     /** metrics tags */
     private final List<Tag> metricsTags = new ArrayList<>();
+    /** request hedging配置, 仅request response方法有效, 未开启则为null */
+    private HedgingPolicy hedgingPolicy;
+    /** 结果缓存, 仅request response方法且标识了{@link ResponseCache}有效, 否则为null */
+    private RequesterCache requesterCache;
+    /** 在途请求合并, 仅request response方法且标识了{@link SingleFlight}有效, 否则为null */
+    private SingleFlightGroup singleFlightGroup;
+    /** fire and forget批量发送配置, 仅fire and forget方法且标识了{@link FireAndForgetBatch}有效, 否则为null */
+    private FireAndForgetBatch fireAndForgetBatch;
+    /** 追加了{@link BatchMetadata}的composite metadata bytes */
+    private ByteBuf batchCompositeMetadataBytes;
+    /** fire and forget批量发送器 */
+    private FireAndForgetBatcher fireAndForgetBatcher;
 
     ReactiveMethodMetadata(String group,
                            String service,
@@ -60,7 +82,8 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
                            RSocketMimeType[] acceptEncodingTypes,
                            String endpoint,
                            boolean sticky,
-                           URI origin) {
+                           URI origin,
+                           HedgingPolicy hedgingPolicy) {
         super(method);
         handler = method.getName();
 
@@ -110,6 +133,9 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
                 frameType = FrameType.REQUEST_RESPONSE;
             }
         }
+        if (frameType == FrameType.REQUEST_RESPONSE) {
+            initHedgingPolicy(method, hedgingPolicy);
+        }
 
         //metrics tags for micrometer
         if (StringUtils.isNotBlank(group)) {
@@ -120,6 +146,19 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
         }
         metricsTags.add(Tag.of("method", this.handler));
         metricsTags.add(Tag.of("frame", this.frameType.name()));
+
+        ResponseCache responseCache = method.getAnnotation(ResponseCache.class);
+        if (frameType == FrameType.REQUEST_RESPONSE && Objects.nonNull(responseCache)) {
+            requesterCache = RequesterCaches.INSTANCE.register(ServiceLocator.gsv(group, service, version), handler, this.dataEncodingType,
+                    () -> new RequesterCache(service, handlerIdStr, responseCache, metricsTags));
+        }
+        if (frameType == FrameType.REQUEST_RESPONSE && method.isAnnotationPresent(SingleFlight.class)) {
+            singleFlightGroup = new SingleFlightGroup(metricsTags);
+        }
+        FireAndForgetBatch fireAndForgetBatch = method.getAnnotation(FireAndForgetBatch.class);
+        if (frameType == FrameType.REQUEST_FNF && Objects.nonNull(fireAndForgetBatch)) {
+            initBatchCompositeMetadata(fireAndForgetBatch);
+        }
     }
 
     /**
@@ -156,6 +195,50 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
         ReferenceCountUtil.safeRelease(compositeMetadataBytes);
     }
 
+    /**
+     * 初始化fire and forget批量发送的composite metadata, 即在默认composite metadata后追加{@link BatchMetadata}
+     */
+    private void initBatchCompositeMetadata(FireAndForgetBatch fireAndForgetBatch) {
+        this.fireAndForgetBatch = fireAndForgetBatch;
+
+        CompositeByteBuf batchCompositeMetadataBytes = ByteBufAllocator.DEFAULT.compositeBuffer();
+        batchCompositeMetadataBytes.addComponent(true, compositeMetadataBytes.retainedDuplicate());
+        CompositeMetadataCodec.encodeAndAddMetadata(batchCompositeMetadataBytes, ByteBufAllocator.DEFAULT,
+                WellKnownMimeType.MESSAGE_RSOCKET_BATCH, BatchMetadata.INSTANCE.getContent());
+
+        //cache
+        this.batchCompositeMetadataBytes = Unpooled.copiedBuffer(batchCompositeMetadataBytes);
+        ReferenceCountUtil.safeRelease(batchCompositeMetadataBytes);
+    }
+
+    /**
+     * 方法标识了{@link FireAndForgetBatch}, 则创建批量发送器
+     *
+     * @param sender 发送合并后的payload data
+     */
+    void initFireAndForgetBatcher(Function<ByteBuf, Mono<Void>> sender) {
+        if (Objects.nonNull(fireAndForgetBatch)) {
+            fireAndForgetBatcher = new FireAndForgetBatcher(fireAndForgetBatch, sender);
+            FireAndForgetBatchers.INSTANCE.register(fireAndForgetBatcher);
+        }
+    }
+
+    /**
+     * 初始化request hedging配置, 方法及服务接口上的{@link Hedging}优先于builder配置
+     */
+    private void initHedgingPolicy(Method method, HedgingPolicy hedgingPolicy) {
+        Hedging hedging = method.getAnnotation(Hedging.class);
+        if (Objects.isNull(hedging)) {
+            hedging = method.getDeclaringClass().getAnnotation(Hedging.class);
+        }
+        if (Objects.nonNull(hedging)) {
+            this.hedgingPolicy = new HedgingPolicy(hedging);
+        } else if (Objects.nonNull(hedgingPolicy)) {
+            //每个方法独立估算请求耗时
+            this.hedgingPolicy = hedgingPolicy.copy();
+        }
+    }
+
     /**
      * 方法是否返回void
      */
@@ -212,4 +295,25 @@ final class ReactiveMethodMetadata extends ReactiveMethodSupport {
     public List<Tag> getMetricsTags() {
         return metricsTags;
     }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public RequesterCache getRequesterCache() {
+        return requesterCache;
+    }
+
+    public SingleFlightGroup getSingleFlightGroup() {
+        return singleFlightGroup;
+    }
+
+    public ByteBuf getBatchCompositeMetadataBytes() {
+        //防止外部误修改
+        return batchCompositeMetadataBytes.retainedDuplicate();
+    }
+
+    public FireAndForgetBatcher getFireAndForgetBatcher() {
+        return fireAndForgetBatcher;
+    }
 }
@@ -0,0 +1,48 @@
+package org.kin.rsocket.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.util.Arrays;
+
+/**
+ * 以方法参数编码后的bytes作为同一服务方法下请求的唯一标识, 预先计算hash值
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+final class RequestKey {
+    /** 方法参数编码后的bytes */
+    private final byte[] bytes;
+    /** hash值 */
+    private final int hash;
+
+    /**
+     * @param paramBodyBytes 方法参数编码后的bytes, 会复制, 但不会修改reader index
+     */
+    static RequestKey of(ByteBuf paramBodyBytes) {
+        return new RequestKey(ByteBufUtil.getBytes(paramBodyBytes));
+    }
+
+    private RequestKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RequestKey)) {
+            return false;
+        }
+        RequestKey that = (RequestKey) o;
+        return hash == that.hash && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
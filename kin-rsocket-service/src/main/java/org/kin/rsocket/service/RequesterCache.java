@@ -0,0 +1,135 @@
+package org.kin.rsocket.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.util.ByteBufPayload;
+import org.kin.rsocket.core.MetricsNames;
+import org.kin.rsocket.core.ResponseCache;
+import org.kin.rsocket.core.metadata.BinaryRoutingMetadataFlyweight;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * requester端单个服务方法的结果缓存, key为方法参数编码后的bytes, value为responder返回的payload bytes
+ * <p>
+ * 缓存的是编码后的bytes而不是结果实例, 每次命中都重新解码, 避免调用方修改结果实例而影响其他调用方
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ * @see ResponseCache
+ */
+final class RequesterCache {
+    /** service name */
+    private final String service;
+    /** service.handler */
+    private final String handlerIdStr;
+    /** responder没有返回{@link org.kin.rsocket.core.metadata.CacheControlMetadata}时的缓存有效时间(毫秒) */
+    private final long ttl;
+    /** 结果缓存 */
+    private final Cache<RequestKey, CachedPayload> cache;
+    /** 缓存命中次数 */
+    private final Counter hitCounter;
+    /** 缓存未命中次数 */
+    private final Counter missCounter;
+
+    RequesterCache(String service, String handlerIdStr, ResponseCache responseCache, List<Tag> metricsTags) {
+        this.service = service;
+        this.handlerIdStr = handlerIdStr;
+        this.ttl = responseCache.ttl();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(responseCache.maxSize(), 1))
+                .build();
+        this.hitCounter = Metrics.counter(MetricsNames.RSOCKET_RESPONSE_CACHE_HIT_COUNT, metricsTags);
+        this.missCounter = Metrics.counter(MetricsNames.RSOCKET_RESPONSE_CACHE_MISS_COUNT, metricsTags);
+    }
+
+    /**
+     * @return 缓存的payload, 未命中或者已过期则返回null
+     */
+    Payload get(RequestKey key) {
+        CachedPayload cachedPayload = cache.getIfPresent(key);
+        if (Objects.nonNull(cachedPayload) && cachedPayload.expiredAt <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            cachedPayload = null;
+        }
+        if (Objects.isNull(cachedPayload)) {
+            missCounter.increment();
+            return null;
+        }
+
+        hitCounter.increment();
+        //wrap heap bytes, 不需要释放
+        return ByteBufPayload.create(Unpooled.wrappedBuffer(cachedPayload.data), Unpooled.wrappedBuffer(cachedPayload.metadata));
+    }
+
+    /**
+     * 缓存responder返回的payload, 不会修改payload的reader index
+     */
+    void put(RequestKey key, Payload payload) {
+        ByteBuf metadata = payload.metadata();
+        long maxAge = -1;
+        if (metadata.isReadable()) {
+            BinaryRoutingMetadataFlyweight flyweight = BinaryRoutingMetadataFlyweight.current();
+            try {
+                flyweight.wrap(metadata);
+                maxAge = flyweight.getCacheControlMaxAge();
+            } finally {
+                flyweight.clear();
+            }
+        }
+        if (maxAge < 0) {
+            maxAge = ttl;
+        }
+        if (maxAge <= 0) {
+            return;
+        }
+        //以requester时钟计算过期时间, 不受responder时钟偏差影响
+        long expiredAt = System.currentTimeMillis() + maxAge;
+
+        cache.put(key, new CachedPayload(ByteBufUtil.getBytes(payload.data()), ByteBufUtil.getBytes(metadata), expiredAt));
+    }
+
+    /**
+     * 清空缓存
+     */
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    //getter
+    String getService() {
+        return service;
+    }
+
+    String getHandlerIdStr() {
+        return handlerIdStr;
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 缓存的payload
+     */
+    private static final class CachedPayload {
+        /** payload data bytes */
+        private final byte[] data;
+        /** payload metadata bytes, 用于解析数据编码类型 */
+        private final byte[] metadata;
+        /** 过期时间戳 */
+        private final long expiredAt;
+
+        private CachedPayload(byte[] data, byte[] metadata, long expiredAt) {
+            this.data = data;
+            this.metadata = metadata;
+            this.expiredAt = expiredAt;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.kin.rsocket.service;
+
+import org.kin.rsocket.core.RSocketMimeType;
+import org.kin.rsocket.core.event.CacheInvalidEvent;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 管理所有requester端服务方法结果缓存, 用于处理{@link CacheInvalidEvent}
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ */
+public final class RequesterCaches {
+    public static final RequesterCaches INSTANCE = new RequesterCaches();
+
+    /** 所有requester端服务方法结果缓存, 同一服务方法及参数编码类型仅有一个缓存, 多个requester共享 */
+    private final ConcurrentMap<CacheKey, RequesterCache> caches = new ConcurrentHashMap<>();
+
+    private RequesterCaches() {
+    }
+
+    /**
+     * 注册requester端服务方法结果缓存
+     *
+     * @param gsv              服务gsv
+     * @param handler          服务方法handler name
+     * @param dataEncodingType 方法参数编码类型, 缓存以参数编码后的bytes为key, 故不同编码类型不能共享缓存
+     * @return 已注册的缓存, 不存在则注册{@code cacheSupplier}创建的缓存
+     */
+    RequesterCache register(String gsv, String handler, RSocketMimeType dataEncodingType, Supplier<RequesterCache> cacheSupplier) {
+        return caches.computeIfAbsent(new CacheKey(gsv, handler, dataEncodingType), k -> cacheSupplier.get());
+    }
+
+    /**
+     * 使匹配的服务方法结果缓存失效
+     *
+     * @param keys {@link CacheInvalidEvent#getKeys()}, 格式为cache name:key, cache name为service.handler或者service,
+     *             方法结果缓存以方法参数bytes为key, 无法按key失效, 故直接清空整个方法的结果缓存
+     */
+    public void invalidate(Collection<String> keys) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        for (String key : keys) {
+            String cacheName = key.split(":", 2)[0];
+            for (RequesterCache cache : caches.values()) {
+                if (cacheName.equals(cache.getHandlerIdStr()) || cacheName.equals(cache.getService())) {
+                    cache.invalidateAll();
+                }
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 缓存key
+     */
+    private static final class CacheKey {
+        /** 服务gsv */
+        private final String gsv;
+        /** 服务方法handler name */
+        private final String handler;
+        /** 方法参数编码类型 */
+        private final RSocketMimeType dataEncodingType;
+
+        CacheKey(String gsv, String handler, RSocketMimeType dataEncodingType) {
+            this.gsv = gsv;
+            this.handler = handler;
+            this.dataEncodingType = dataEncodingType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return gsv.equals(cacheKey.gsv) && handler.equals(cacheKey.handler) && dataEncodingType == cacheKey.dataEncodingType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gsv, handler, dataEncodingType);
+        }
+    }
+}
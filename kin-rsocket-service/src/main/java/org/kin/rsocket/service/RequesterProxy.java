@@ -17,6 +17,7 @@ import org.kin.framework.utils.MethodHandleUtils;
 import org.kin.framework.utils.StringUtils;
 import org.kin.rsocket.core.*;
 import org.kin.rsocket.core.codec.ObjectCodecs;
+import org.kin.rsocket.core.metadata.BinaryRoutingMetadataFlyweight;
 import org.kin.rsocket.core.metadata.MessageMimeTypeMetadata;
 import org.kin.rsocket.core.metadata.RSocketCompositeMetadata;
 import org.slf4j.Logger;
@@ -33,6 +34,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * requester 代理
@@ -68,6 +70,8 @@ public class RequesterProxy implements InvocationHandler {
     protected final RSocketMimeType[] defaultAcceptEncodingTypes;
     /** timeout for request/response */
     protected final Duration timeout;
+    /** builder配置的request hedging, 未开启则为null */
+    private final HedgingPolicy hedgingPolicy;
     /** java method metadata map cache for performance */
     protected final Map<Method, ReactiveMethodMetadata> methodMetadataMap = new ConcurrentHashMap<>();
 
@@ -108,6 +112,7 @@ public class RequesterProxy implements InvocationHandler {
             this.defaultAcceptEncodingTypes = acceptEncodingTypes;
         }
         timeout = builder.getCallTimeout();
+        hedgingPolicy = builder.getHedgingPolicy();
     }
 
     @Override
@@ -133,10 +138,8 @@ public class RequesterProxy implements InvocationHandler {
 
         ReactiveMethodMetadata methodMetadata = methodMetadataMap.get(method);
         if (Objects.isNull(methodMetadata)) {
-            //lazy init method metadata
-            methodMetadata = new ReactiveMethodMetadata(group, service, version,
-                    method, defaultEncodingType, defaultAcceptEncodingTypes, endpoint, sticky, sourceUri);
-            methodMetadataMap.put(method, methodMetadata);
+            //lazy init method metadata, 并发时仅创建一次
+            methodMetadata = methodMetadataMap.computeIfAbsent(method, this::createMethodMetadata);
         }
         MutableContext mutableContext = new MutableContext();
         mutableContext.put(ReactiveMethodMetadata.class, methodMetadata);
@@ -161,9 +164,8 @@ public class RequesterProxy implements InvocationHandler {
             Flux<Object> result = requestChannel(methodMetadata, methodMetadata.getCompositeMetadataBytes(), routeBytes, paramBodys)
                     .concatMap(payload -> {
                         try {
-                            RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                             return Mono.justOrEmpty(ObjectCodecs.INSTANCE.decodeResult(
-                                    extractPayloadDataMimeType(compositeMetadata, finalMethodMetadata1.getAcceptEncodingTypes()[0]),
+                                    extractPayloadDataMimeType(payload.metadata(), finalMethodMetadata1.getAcceptEncodingTypes()[0]),
                                     payload.data(),
                                     finalMethodMetadata1.getInferredClassForReturn()));
                         } catch (Exception e) {
@@ -183,31 +185,25 @@ public class RequesterProxy implements InvocationHandler {
             if (methodMetadata.getFrameType() == FrameType.REQUEST_RESPONSE) {
                 //request response
                 metrics(methodMetadata);
-                ReactiveMethodMetadata finalMethodMetadata = methodMetadata;
-                //handle return
-                Mono<Object> result = requestResponse(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes)
-                        .handle((payload, sink) -> {
-                            try {
-                                RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
-                                Object obj = ObjectCodecs.INSTANCE.decodeResult(
-                                        extractPayloadDataMimeType(compositeMetadata, finalMethodMetadata.getAcceptEncodingTypes()[0]),
-                                        payload.data(),
-                                        finalMethodMetadata.getInferredClassForReturn());
-                                if (obj != null) {
-                                    sink.next(obj);
-                                }
-                                sink.complete();
-                            } catch (Exception e) {
-                                sink.error(e);
-                            } finally {
-                                ReferenceCountUtil.safeRelease(payload);
-                            }
-                        });
+                Mono<Object> result;
+                SingleFlightGroup singleFlightGroup = methodMetadata.getSingleFlightGroup();
+                if (Objects.nonNull(singleFlightGroup)) {
+                    ReactiveMethodMetadata finalMethodMetadata = methodMetadata;
+                    result = singleFlightGroup.execute(paramBodyBytes, bytes -> requestResponseResult(finalMethodMetadata, bytes));
+                } else {
+                    result = requestResponseResult(methodMetadata, paramBodyBytes);
+                }
                 return ReactiveObjAdapter.INSTANCE.fromPublisher(result, mutableContext);
             } else if (methodMetadata.getFrameType() == FrameType.REQUEST_FNF) {
                 //request and forget
                 metrics(methodMetadata);
-                Mono<Void> result = fireAndForget(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes);
+                Mono<Void> result;
+                FireAndForgetBatcher fireAndForgetBatcher = methodMetadata.getFireAndForgetBatcher();
+                if (Objects.nonNull(fireAndForgetBatcher)) {
+                    result = Mono.fromRunnable(() -> fireAndForgetBatcher.add(paramBodyBytes));
+                } else {
+                    result = fireAndForget(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes);
+                }
                 if (methodMetadata.isReturnVoid()) {
                     //返回void
                     result.subscribe();
@@ -222,9 +218,8 @@ public class RequesterProxy implements InvocationHandler {
                 Flux<Object> result = requestStream(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes)
                         .concatMap((payload) -> {
                             try {
-                                RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(payload.metadata());
                                 return Mono.justOrEmpty(ObjectCodecs.INSTANCE.decodeResult(
-                                        extractPayloadDataMimeType(compositeMetadata, finalMethodMetadata.getAcceptEncodingTypes()[0]),
+                                        extractPayloadDataMimeType(payload.metadata(), finalMethodMetadata.getAcceptEncodingTypes()[0]),
                                         payload.data(),
                                         finalMethodMetadata.getInferredClassForReturn()));
                             } catch (Exception e) {
@@ -245,14 +240,124 @@ public class RequesterProxy implements InvocationHandler {
      * requestResponse请求封装, 用于子类扩展
      */
     protected Mono<Payload> requestResponse(ReactiveMethodMetadata methodMetadata, ByteBuf compositeMetadataBytes, ByteBuf paramBodyBytes) {
-        return selector.select(serviceId)
-                .requestResponse(ByteBufPayload.create(paramBodyBytes, compositeMetadataBytes))
+        Mono<Payload> request;
+        if (Objects.nonNull(methodMetadata.getHedgingPolicy())) {
+            request = hedgingRequestResponse(methodMetadata.getHedgingPolicy(), compositeMetadataBytes, paramBodyBytes);
+        } else {
+            request = selector.select(serviceId).requestResponse(ByteBufPayload.create(paramBodyBytes, compositeMetadataBytes));
+        }
+        return request
                 .name(methodMetadata.getHandlerIdStr())
                 .metrics()
                 .timeout(timeout)
                 .doOnError(t -> handleCallError(t, methodMetadata));
     }
 
+    /**
+     * 创建服务方法元数据
+     */
+    private ReactiveMethodMetadata createMethodMetadata(Method method) {
+        ReactiveMethodMetadata methodMetadata = new ReactiveMethodMetadata(group, service, version,
+                method, defaultEncodingType, defaultAcceptEncodingTypes, endpoint, sticky, sourceUri, hedgingPolicy);
+        methodMetadata.initFireAndForgetBatcher(data ->
+                fireAndForget(methodMetadata, methodMetadata.getBatchCompositeMetadataBytes(), data));
+        return methodMetadata;
+    }
+
+    /**
+     * 发送requestResponse请求, 并解码结果
+     */
+    private Mono<Object> requestResponseResult(ReactiveMethodMetadata methodMetadata, ByteBuf paramBodyBytes) {
+        Mono<Payload> response;
+        RequesterCache requesterCache = methodMetadata.getRequesterCache();
+        if (Objects.nonNull(requesterCache)) {
+            response = cachedRequestResponse(methodMetadata, requesterCache, paramBodyBytes);
+        } else {
+            response = requestResponse(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes);
+        }
+        return response.handle((payload, sink) -> {
+            try {
+                Object obj = ObjectCodecs.INSTANCE.decodeResult(
+                        extractPayloadDataMimeType(payload.metadata(), methodMetadata.getAcceptEncodingTypes()[0]),
+                        payload.data(),
+                        methodMetadata.getInferredClassForReturn());
+                if (obj != null) {
+                    sink.next(obj);
+                }
+                sink.complete();
+            } catch (Exception e) {
+                sink.error(e);
+            } finally {
+                ReferenceCountUtil.safeRelease(payload);
+            }
+        });
+    }
+
+    /**
+     * 优先从结果缓存获取, 未命中才发送requestResponse请求, 并缓存响应结果
+     */
+    private Mono<Payload> cachedRequestResponse(ReactiveMethodMetadata methodMetadata, RequesterCache requesterCache, ByteBuf paramBodyBytes) {
+        RequestKey key = RequestKey.of(paramBodyBytes);
+        Payload cached = requesterCache.get(key);
+        if (Objects.nonNull(cached)) {
+            ReferenceCountUtil.safeRelease(paramBodyBytes);
+            return Mono.just(cached);
+        }
+        return requestResponse(methodMetadata, methodMetadata.getCompositeMetadataBytes(), paramBodyBytes)
+                .doOnNext(payload -> requesterCache.put(key, payload));
+    }
+
+    /**
+     * request hedging, 请求超过指定延迟仍未响应, 则再发送一次相同请求, 取先响应的结果, 并取消另外一个请求
+     * <p>
+     * hedge请求复用同一份编码后的bytes, 故需在首个请求发送(即释放bytes)前retain, 若最终没有发送hedge请求, 则释放
+     * 首个请求失败时直接返回异常, 不等待hedge请求, 即hedging不等同于重试
+     */
+    private Mono<Payload> hedgingRequestResponse(HedgingPolicy hedgingPolicy, ByteBuf compositeMetadataBytes, ByteBuf paramBodyBytes) {
+        Duration hedgeDelay = hedgingPolicy.hedgeDelay();
+        HedgingBudget.INSTANCE.deposit();
+        if (Objects.isNull(hedgeDelay)) {
+            //样本不足, 仅记录耗时
+            long startNanos = System.nanoTime();
+            return selector.select(serviceId)
+                    .requestResponse(ByteBufPayload.create(paramBodyBytes, compositeMetadataBytes))
+                    .doOnSuccess(p -> hedgingPolicy.record(System.nanoTime() - startNanos));
+        }
+
+        return Mono.defer(() -> {
+            ByteBuf hedgeParamBodyBytes = paramBodyBytes.retainedDuplicate();
+            ByteBuf hedgeCompositeMetadataBytes = compositeMetadataBytes.retainedDuplicate();
+            //hedge bytes是否已交由hedge请求或者已释放
+            AtomicBoolean hedgeBytesOwned = new AtomicBoolean();
+            long startNanos = System.nanoTime();
+
+            //仅以首个请求耗时作为样本, 若hedge请求先响应, 首个请求被取消, 此时已耗时是其耗时下限, 同样作为样本,
+            //避免hedge请求耗时拉低延迟估算, 导致hedge请求越来越多
+            Mono<Payload> primary = selector.select(serviceId)
+                    .requestResponse(ByteBufPayload.create(paramBodyBytes, compositeMetadataBytes))
+                    .doOnSuccess(p -> hedgingPolicy.record(System.nanoTime() - startNanos))
+                    .doOnCancel(() -> hedgingPolicy.record(System.nanoTime() - startNanos));
+            Mono<Payload> hedge = Mono.delay(hedgeDelay)
+                    .flatMap(t -> {
+                        if (!HedgingBudget.INSTANCE.tryWithdraw() || !hedgeBytesOwned.compareAndSet(false, true)) {
+                            return Mono.never();
+                        }
+                        //hedge请求失败, 仍以首个请求结果为准
+                        return selector.select(serviceId)
+                                .requestResponse(ByteBufPayload.create(hedgeParamBodyBytes, hedgeCompositeMetadataBytes))
+                                .onErrorResume(e -> Mono.never());
+                    });
+
+            return Mono.firstWithSignal(primary, hedge)
+                    .doFinally(s -> {
+                        if (hedgeBytesOwned.compareAndSet(false, true)) {
+                            ReferenceCountUtil.safeRelease(hedgeParamBodyBytes);
+                            ReferenceCountUtil.safeRelease(hedgeCompositeMetadataBytes);
+                        }
+                    });
+        });
+    }
+
     /**
      * fireAndForget请求封装, 用于子类扩展
      */
@@ -312,9 +417,38 @@ public class RequesterProxy implements InvocationHandler {
     }
 
     /**
-     * 从{@link RSocketCompositeMetadata}获取{@link MessageMimeTypeMetadata}元数据
+     * 从composite metadata获取{@link MessageMimeTypeMetadata}元数据
+     * 优先按字节匹配或扫描entry header, 仅当message mime type非well known时, 才完整解析{@link RSocketCompositeMetadata}
      */
-    private RSocketMimeType extractPayloadDataMimeType(RSocketCompositeMetadata compositeMetadata, RSocketMimeType defaultEncodingType) {
+    private RSocketMimeType extractPayloadDataMimeType(ByteBuf metadata, RSocketMimeType defaultEncodingType) {
+        if (!metadata.isReadable()) {
+            return defaultEncodingType;
+        }
+        //responder默认的composite metadata, 直接按字节匹配
+        RSocketMimeType mimeType = ObjectCodecs.INSTANCE.matchDefaultCompositeMetadata(metadata);
+        if (Objects.nonNull(mimeType)) {
+            return mimeType;
+        }
+
+        //扫描entry header, 仅读取message mime type id
+        BinaryRoutingMetadataFlyweight flyweight = BinaryRoutingMetadataFlyweight.current();
+        try {
+            flyweight.wrap(metadata);
+            if (!flyweight.containsCustomMessageMimeType()) {
+                if (!flyweight.containsMessageMimeType()) {
+                    return defaultEncodingType;
+                }
+                mimeType = flyweight.getMessageMimeType();
+                if (Objects.nonNull(mimeType)) {
+                    return mimeType;
+                }
+            }
+        } finally {
+            flyweight.clear();
+        }
+
+        //非well known mime type, 完整解析
+        RSocketCompositeMetadata compositeMetadata = RSocketCompositeMetadata.from(metadata);
         if (compositeMetadata.contains(RSocketMimeType.MESSAGE_MIME_TYPE)) {
             MessageMimeTypeMetadata mimeTypeMetadata = compositeMetadata.getMetadata(RSocketMimeType.MESSAGE_MIME_TYPE);
             return mimeTypeMetadata.getMessageMimeType();
@@ -0,0 +1,58 @@
+package org.kin.rsocket.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.rsocket.core.MetricsNames;
+import org.kin.rsocket.core.SingleFlight;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 单个服务方法的在途请求合并, 方法参数相同的在途请求共享同一个解码后的结果
+ *
+ * @author huangjianqin
+ * @date 2022/3/13
+ * @see SingleFlight
+ */
+final class SingleFlightGroup {
+    /** key -> 在途请求结果 */
+    private final Map<RequestKey, Mono<Object>> inflights = new ConcurrentHashMap<>();
+    /** 被合并的请求次数 */
+    private final Counter sharedCounter;
+
+    SingleFlightGroup(List<Tag> metricsTags) {
+        this.sharedCounter = Metrics.counter(MetricsNames.RSOCKET_SINGLE_FLIGHT_SHARED_COUNT, metricsTags);
+    }
+
+    /**
+     * 存在参数相同的在途请求, 则直接返回其结果, 并释放{@code paramBodyBytes}, 否则发送请求
+     * <p>
+     * 在途请求结束后才移除, 结束前订阅的调用方都会收到该结果(包括异常), 结束后的调用方则重新发送请求
+     *
+     * @param paramBodyBytes 方法参数编码后的bytes
+     * @param call           发送请求并解码结果
+     */
+    Mono<Object> execute(ByteBuf paramBodyBytes, Function<ByteBuf, Mono<Object>> call) {
+        RequestKey key = RequestKey.of(paramBodyBytes);
+        boolean[] leader = new boolean[1];
+        Mono<Object> result = inflights.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            //cache, 保证结果只计算一次, 且请求结束后订阅也不会重复发送请求
+            return call.apply(paramBodyBytes)
+                    .doFinally(s -> inflights.remove(k))
+                    .cache();
+        });
+        if (!leader[0]) {
+            ReferenceCountUtil.safeRelease(paramBodyBytes);
+            sharedCounter.increment();
+        }
+        return result;
+    }
+}